@@ -0,0 +1,392 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary framing for PurGame/OpMove, shared by the TetrisServer
+ * client and SimpleTetrisServer.
+ *
+ * A client opts in by sending the {@link #HELLO} line right after connecting.
+ * A server that answers {@link #OK_BINARY} switches that connection to binary
+ * frames; any other answer (or none) means the connection stays on
+ * newline-delimited JSON.
+ *
+ * Every frame is a big-endian int length followed by that many bytes:
+ * <pre>
+ *   move request:  type, seq (int), width, height, currentShape, nextShape, occupancy bits
+ *   session sync:  same layout as a move request
+ *   session delta: type, seq (int), placement count,
+ *                  per placement: piece, rotation, x, y, cleared count, cleared rows...,
+ *                  currentShape, nextShape, checksum (int)
+ *   batch request: type, seq (int), board count (unsigned short),
+ *                  per board: width, height, currentShape, nextShape, occupancy bits
+ *   move reply:    type, seq (int), opX, opRotate
+ *   resync reply:  type, seq (int)
+ *   batch reply:   type, seq (int), move count (unsigned short), per move: opX, opRotate
+ * </pre>
+ * Replies echo the request's seq, so a client may send several requests
+ * before reading any reply and match them up by seq. Occupancy is row-major from the top
+ * left: bit i is cell (i % width, i / width), least significant bit first
+ * within each byte, so a 10x20 board is 25 bytes.
+ *
+ * Session frames let the server keep the last board per connection. A sync
+ * sends the whole board once; after that each delta only names the pieces
+ * locked since the previous request, the rows each one cleared (indices
+ * before clearing) and the new piece ids. The checksum is
+ * {@link #checksum(BitBoard)} of the client's board after those placements;
+ * if the server's copy disagrees it answers with a resync reply and the
+ * client sends a sync again.
+ */
+public final class BinaryProtocol {
+    public static final String HELLO = "HELLO binary/1";
+    public static final String OK_BINARY = "OK binary/1";
+    public static final String OK_JSON = "OK json";
+
+    public static final byte MOVE_REQUEST = 0x01;
+    public static final byte SESSION_SYNC = 0x02;
+    public static final byte SESSION_DELTA = 0x03;
+    public static final byte BATCH_REQUEST = 0x04;
+    public static final byte MOVE_REPLY = (byte) 0x81;
+    public static final byte RESYNC_REPLY = (byte) 0x82;
+    public static final byte BATCH_REPLY = (byte) 0x83;
+
+    /** Reply payload sizes, excluding the length prefix. */
+    public static final int MOVE_REPLY_BYTES = 7;
+    public static final int RESYNC_REPLY_BYTES = 5;
+    public static final int MAX_FRAME_BYTES = 1 << 16;
+    private static final int MOVE_REQUEST_HEADER = 9;
+    private static final int BATCH_HEADER = 7;
+    private static final int BOARD_HEADER = 4;
+
+    private BinaryProtocol() {}
+
+    public static int occupancyBytes(int width, int height) {
+        return (width * height + 7) / 8;
+    }
+
+    /** A complete move request frame, length prefix included. Non-zero cells count as filled. */
+    public static byte[] encodeMoveRequest(int seq, int width, int height, int[][] cells,
+                                           int currentShape, int nextShape) {
+        return encodeBoard(MOVE_REQUEST, seq, width, height, cells, currentShape, nextShape);
+    }
+
+    /** A complete session sync frame: a move request that also resets the server's session board. */
+    public static byte[] encodeSessionSync(int seq, int width, int height, int[][] cells,
+                                           int currentShape, int nextShape) {
+        return encodeBoard(SESSION_SYNC, seq, width, height, cells, currentShape, nextShape);
+    }
+
+    private static byte[] encodeBoard(byte type, int seq, int width, int height, int[][] cells,
+                                      int currentShape, int nextShape) {
+        if (width < 1 || width > 255 || height < 1 || height > 255) {
+            throw new IllegalArgumentException("Unsupported board size " + width + "x" + height);
+        }
+        int payload = MOVE_REQUEST_HEADER + occupancyBytes(width, height);
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload);
+        frame.putInt(payload);
+        frame.put(type);
+        frame.putInt(seq);
+        frame.put((byte) width);
+        frame.put((byte) height);
+        frame.put((byte) currentShape);
+        frame.put((byte) nextShape);
+        packCells(cells, width, height, frame.array(), frame.position());
+        return frame.array();
+    }
+
+    /** A decoded move request; cells are 1 for filled, 0 for empty. */
+    public static final class MoveRequest {
+        public final int seq;
+        public final int width;
+        public final int height;
+        public final int[][] cells;
+        public final int currentShape;
+        public final int nextShape;
+
+        public MoveRequest(int seq, int width, int height, int[][] cells, int currentShape, int nextShape) {
+            this.seq = seq;
+            this.width = width;
+            this.height = height;
+            this.cells = cells;
+            this.currentShape = currentShape;
+            this.nextShape = nextShape;
+        }
+    }
+
+    /** Decode a move request or session sync payload (the bytes after the length prefix). */
+    public static MoveRequest decodeMoveRequest(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        byte type = payload.length < MOVE_REQUEST_HEADER ? 0 : in.get();
+        if (type != MOVE_REQUEST && type != SESSION_SYNC) {
+            throw new IllegalArgumentException("Not a move request");
+        }
+        int seq = in.getInt();
+        int width = in.get() & 0xFF;
+        int height = in.get() & 0xFF;
+        int currentShape = in.get();
+        int nextShape = in.get();
+        if (payload.length != MOVE_REQUEST_HEADER + occupancyBytes(width, height)) {
+            throw new IllegalArgumentException("Move request is " + payload.length + " bytes for a "
+                    + width + "x" + height + " board");
+        }
+        int[][] cells = unpackCells(payload, MOVE_REQUEST_HEADER, width, height);
+        return new MoveRequest(seq, width, height, cells, currentShape, nextShape);
+    }
+
+    /**
+     * A complete batch request frame, length prefix included. The boards' own
+     * seq fields are ignored; the whole batch is answered under {@code seq}.
+     */
+    public static byte[] encodeBatchRequest(int seq, List<MoveRequest> boards) {
+        int payload = BATCH_HEADER;
+        for (MoveRequest board : boards) {
+            if (board.width < 1 || board.width > 255 || board.height < 1 || board.height > 255) {
+                throw new IllegalArgumentException("Unsupported board size " + board.width + "x" + board.height);
+            }
+            payload += BOARD_HEADER + occupancyBytes(board.width, board.height);
+        }
+        if (boards.size() > 0xFFFF || payload > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Batch of " + boards.size() + " boards exceeds the frame limit");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload);
+        frame.putInt(payload);
+        frame.put(BATCH_REQUEST);
+        frame.putInt(seq);
+        frame.putShort((short) boards.size());
+        for (MoveRequest board : boards) {
+            frame.put((byte) board.width);
+            frame.put((byte) board.height);
+            frame.put((byte) board.currentShape);
+            frame.put((byte) board.nextShape);
+            packCells(board.cells, board.width, board.height, frame.array(), frame.position());
+            frame.position(frame.position() + occupancyBytes(board.width, board.height));
+        }
+        return frame.array();
+    }
+
+    /** Decode a batch request payload; every board carries the batch's seq. */
+    public static MoveRequest[] decodeBatchRequest(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (payload.length < BATCH_HEADER || in.get() != BATCH_REQUEST) {
+            throw new IllegalArgumentException("Not a batch request");
+        }
+        int seq = in.getInt();
+        MoveRequest[] boards = new MoveRequest[in.getShort() & 0xFFFF];
+        for (int i = 0; i < boards.length; i++) {
+            int width = in.get() & 0xFF;
+            int height = in.get() & 0xFF;
+            int currentShape = in.get();
+            int nextShape = in.get();
+            int bytes = occupancyBytes(width, height);
+            if (width == 0 || height == 0 || in.remaining() < bytes) {
+                throw new IllegalArgumentException("Truncated board " + i + " in batch request");
+            }
+            boards[i] = new MoveRequest(seq, width, height, unpackCells(payload, in.position(), width, height),
+                    currentShape, nextShape);
+            in.position(in.position() + bytes);
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes in batch request");
+        }
+        return boards;
+    }
+
+    /** A complete batch reply frame; {@code moves} holds opX, opRotate pairs. */
+    public static byte[] encodeBatchReply(int seq, int[] moves) {
+        int payload = BATCH_HEADER + moves.length;
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload);
+        frame.putInt(payload);
+        frame.put(BATCH_REPLY);
+        frame.putInt(seq);
+        frame.putShort((short) (moves.length / 2));
+        for (int value : moves) {
+            frame.put((byte) value);
+        }
+        return frame.array();
+    }
+
+    /** Moves from a batch reply payload as opX, opRotate pairs; the seq is {@link #replySeq}. */
+    public static int[] decodeBatchReply(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (payload.length < BATCH_HEADER || in.get() != BATCH_REPLY) {
+            throw new IllegalArgumentException("Not a batch reply");
+        }
+        in.getInt();
+        int[] moves = new int[(in.getShort() & 0xFFFF) * 2];
+        if (payload.length != BATCH_HEADER + moves.length) {
+            throw new IllegalArgumentException("Batch reply is " + payload.length + " bytes for "
+                    + moves.length / 2 + " moves");
+        }
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = in.get() & 0xFF;
+        }
+        return moves;
+    }
+
+    /** One locked piece in a session delta. */
+    public static final class Placement {
+        public final int piece;
+        public final int rotation;
+        public final int x;
+        public final int y;
+        public final int[] clearedRows; // ascending, indices before the rows were removed
+
+        public Placement(int piece, int rotation, int x, int y, int[] clearedRows) {
+            this.piece = piece;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+            this.clearedRows = clearedRows;
+        }
+    }
+
+    /** A decoded session delta. */
+    public static final class SessionDelta {
+        public final int seq;
+        public final Placement[] placements;
+        public final int currentShape;
+        public final int nextShape;
+        public final int checksum;
+
+        SessionDelta(int seq, Placement[] placements, int currentShape, int nextShape, int checksum) {
+            this.seq = seq;
+            this.placements = placements;
+            this.currentShape = currentShape;
+            this.nextShape = nextShape;
+            this.checksum = checksum;
+        }
+    }
+
+    /** A complete session delta frame, length prefix included. */
+    public static byte[] encodeSessionDelta(int seq, List<Placement> placements, int currentShape, int nextShape,
+                                            int checksum) {
+        int payload = 1 + 4 + 1 + 2 + 4;
+        for (Placement placement : placements) {
+            payload += 5 + placement.clearedRows.length;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload);
+        frame.putInt(payload);
+        frame.put(SESSION_DELTA);
+        frame.putInt(seq);
+        frame.put((byte) placements.size());
+        for (Placement placement : placements) {
+            frame.put((byte) placement.piece);
+            frame.put((byte) placement.rotation);
+            frame.put((byte) placement.x);
+            frame.put((byte) placement.y);
+            frame.put((byte) placement.clearedRows.length);
+            for (int row : placement.clearedRows) {
+                frame.put((byte) row);
+            }
+        }
+        frame.put((byte) currentShape);
+        frame.put((byte) nextShape);
+        frame.putInt(checksum);
+        return frame.array();
+    }
+
+    public static SessionDelta decodeSessionDelta(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (in.get() != SESSION_DELTA) {
+            throw new IllegalArgumentException("Not a session delta");
+        }
+        int seq = in.getInt();
+        Placement[] placements = new Placement[in.get() & 0xFF];
+        for (int i = 0; i < placements.length; i++) {
+            int piece = in.get();
+            int rotation = in.get();
+            int x = in.get();
+            int y = in.get();
+            int[] clearedRows = new int[in.get() & 0xFF];
+            for (int r = 0; r < clearedRows.length; r++) {
+                clearedRows[r] = in.get() & 0xFF;
+            }
+            placements[i] = new Placement(piece, rotation, x, y, clearedRows);
+        }
+        int currentShape = in.get();
+        int nextShape = in.get();
+        int checksum = in.getInt();
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes in session delta");
+        }
+        return new SessionDelta(seq, placements, currentShape, nextShape, checksum);
+    }
+
+    /**
+     * Apply a delta's placements to a session board. Returns false, leaving the
+     * board in an undefined state, when a piece does not fit or the cleared rows
+     * or checksum disagree with the client's.
+     */
+    public static boolean applySessionDelta(BitBoard board, SessionDelta delta) {
+        for (Placement placement : delta.placements) {
+            if (placement.piece < 0 || placement.piece >= TetrisEngine.PIECE_TABLE.pieceCount()) return false;
+            PieceTable.Orientation piece = TetrisEngine.PIECE_TABLE.get(placement.piece, placement.rotation);
+            if (board.collides(piece.rowMasks, piece.width, placement.x, placement.y)) return false;
+            board.place(piece.rowMasks, placement.x, placement.y, placement.piece + 1);
+            if (!Arrays.equals(board.fullRowIndices(), placement.clearedRows)) return false;
+            board.clearFullRows();
+        }
+        return checksum(board) == delta.checksum;
+    }
+
+    /** Board checksum carried by session deltas: the folded occupancy hash. */
+    public static int checksum(BitBoard board) {
+        long hash = board.hash64();
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    public static byte[] encodeResyncReply(int seq) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + RESYNC_REPLY_BYTES);
+        frame.putInt(RESYNC_REPLY_BYTES);
+        frame.put(RESYNC_REPLY);
+        frame.putInt(seq);
+        return frame.array();
+    }
+
+    /** Seq echoed by any reply payload. */
+    public static int replySeq(byte[] payload) {
+        return ByteBuffer.wrap(payload, 1, 4).getInt();
+    }
+
+    /** A complete move reply frame, length prefix included. */
+    public static byte[] encodeMoveReply(int seq, int opX, int opRotate) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + MOVE_REPLY_BYTES);
+        frame.putInt(MOVE_REPLY_BYTES);
+        frame.put(MOVE_REPLY);
+        frame.putInt(seq);
+        frame.put((byte) opX);
+        frame.put((byte) opRotate);
+        return frame.array();
+    }
+
+    /** Reply fields from a move reply payload: {seq, opX, opRotate}. */
+    public static int[] decodeMoveReply(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (payload.length != MOVE_REPLY_BYTES || in.get() != MOVE_REPLY) {
+            throw new IllegalArgumentException("Not a move reply");
+        }
+        return new int[] {in.getInt(), in.get() & 0xFF, in.get() & 0xFF};
+    }
+
+    public static void packCells(int[][] cells, int width, int height, byte[] out, int offset) {
+        int bit = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, bit++) {
+                if (cells[y][x] != 0) {
+                    out[offset + (bit >>> 3)] |= 1 << (bit & 7);
+                }
+            }
+        }
+    }
+
+    public static int[][] unpackCells(byte[] in, int offset, int width, int height) {
+        int[][] cells = new int[height][width];
+        int bit = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, bit++) {
+                cells[y][x] = (in[offset + (bit >>> 3)] >>> (bit & 7)) & 1;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.Arrays;
+
+/**
+ * Packed Tetris playfield: one int bitmask per row (bit x set when column x is
+ * occupied) plus an optional colour plane used for rendering and saving.
+ * Collision checks are a handful of AND operations per piece row and a full
+ * line is a single compare against the full-row mask.
+ */
+public final class BitBoard {
+    public static final int MAX_WIDTH = 31;
+
+    private final int width;
+    private final int height;
+    private final int fullRow;
+    private final int[] rows;
+    private final int[][] colors; // null for mask-only scratch boards (AI search)
+
+    public BitBoard(int width, int height) {
+        this(width, height, true);
+    }
+
+    private BitBoard(int width, int height, boolean withColors) {
+        if (width < 1 || width > MAX_WIDTH || height < 1) {
+            throw new IllegalArgumentException("Unsupported board size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.fullRow = (1 << width) - 1;
+        this.rows = new int[height];
+        this.colors = withColors ? new int[height][width] : null;
+    }
+
+    /**
+     * Build a board from a colour grid (0 = empty). Cells outside this board's
+     * dimensions are ignored so older saves of a different size still load.
+     */
+    public static BitBoard fromCells(int[][] cells, int width, int height) {
+        BitBoard result = new BitBoard(width, height);
+        result.loadCells(cells);
+        return result;
+    }
+
+    public void loadCells(int[][] cells) {
+        clear();
+        for (int y = 0; y < Math.min(height, cells.length); y++) {
+            for (int x = 0; x < Math.min(width, cells[y].length); x++) {
+                if (cells[y][x] != 0) {
+                    rows[y] |= 1 << x;
+                    if (colors != null) colors[y][x] = cells[y][x];
+                }
+            }
+        }
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+    public int fullRowMask() { return fullRow; }
+
+    /** Occupancy mask for row y (bit x = column x). */
+    public int row(int y) { return rows[y]; }
+
+    /**
+     * Live colour plane (piece index + 1, 0 = empty). Shared with the caller so
+     * rendering and saving read it without copying; only mutate through this class.
+     */
+    public int[][] cells() { return colors; }
+
+    public boolean isOccupied(int x, int y) {
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    /**
+     * True when a shape given as per-row masks (bit px = column px of the shape)
+     * cannot be placed with its top-left corner at (x, y). Rows above the top of
+     * the board only collide with the side walls, matching the game's spawn rules.
+     */
+    public boolean collides(int[] shapeRows, int shapeWidth, int x, int y) {
+        if (x < 0 || x + shapeWidth > width) return true;
+        for (int py = 0; py < shapeRows.length; py++) {
+            int boardY = y + py;
+            if (boardY >= height) return true;
+            if (boardY >= 0 && (rows[boardY] & (shapeRows[py] << x)) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Stamp a shape into the board. Rows outside the board are dropped. */
+    public void place(int[] shapeRows, int x, int y, int color) {
+        for (int py = 0; py < shapeRows.length; py++) {
+            int boardY = y + py;
+            if (boardY < 0 || boardY >= height) continue;
+            int mask = (shapeRows[py] << x) & fullRow;
+            rows[boardY] |= mask;
+            if (colors != null) {
+                int[] colorRow = colors[boardY];
+                for (int bits = mask; bits != 0; bits &= bits - 1) {
+                    colorRow[Integer.numberOfTrailingZeros(bits)] = color;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill {@code tops[x]} with the row of the highest filled cell in column x,
+     * or {@code height} when the column is empty.
+     */
+    public void columnTops(int[] tops) {
+        Arrays.fill(tops, 0, width, height);
+        int covered = 0;
+        for (int y = 0; y < height && covered != fullRow; y++) {
+            for (int bits = rows[y] & ~covered; bits != 0; bits &= bits - 1) {
+                tops[Integer.numberOfTrailingZeros(bits)] = y;
+            }
+            covered |= rows[y];
+        }
+    }
+
+    public boolean isFullRow(int y) {
+        return rows[y] == fullRow;
+    }
+
+    public int countFullRows() {
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            if (rows[y] == fullRow) count++;
+        }
+        return count;
+    }
+
+    /** Indices of the full rows, top to bottom. */
+    public int[] fullRowIndices() {
+        int[] indices = new int[countFullRows()];
+        for (int y = 0, i = 0; i < indices.length; y++) {
+            if (rows[y] == fullRow) indices[i++] = y;
+        }
+        return indices;
+    }
+
+    /**
+     * Remove every full row, shifting the rows above down. Colour rows are
+     * recycled rather than copied.
+     *
+     * @return number of rows removed
+     */
+    public int clearFullRows() {
+        int write = height - 1;
+        for (int read = height - 1; read >= 0; read--) {
+            if (rows[read] == fullRow) continue;
+            if (write != read) {
+                rows[write] = rows[read];
+                if (colors != null) {
+                    int[] tmp = colors[write];
+                    colors[write] = colors[read];
+                    colors[read] = tmp;
+                }
+            }
+            write--;
+        }
+        int removed = write + 1;
+        for (int y = 0; y < removed; y++) {
+            rows[y] = 0;
+            if (colors != null) Arrays.fill(colors[y], 0);
+        }
+        return removed;
+    }
+
+    /**
+     * 64-bit hash of the occupancy masks and board size; the colour plane is
+     * ignored. It is the XOR of one key per row, so a caller that changes a
+     * few rows can update it with {@link #rowKey} instead of rehashing.
+     */
+    public long hash64() {
+        long h = sizeKey(width, height);
+        for (int y = 0; y < height; y++) {
+            h ^= rowKey(y, rows[y]);
+        }
+        return h;
+    }
+
+    public static long sizeKey(int width, int height) {
+        return mix64(0x9E3779B97F4A7C15L ^ ((long) width << 40) ^ ((long) height << 20));
+    }
+
+    public static long rowKey(int y, int row) {
+        return mix64(((long) y << 32) ^ (row & 0xFFFFFFFFL));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public void clear() {
+        Arrays.fill(rows, 0);
+        if (colors != null) {
+            for (int[] colorRow : colors) Arrays.fill(colorRow, 0);
+        }
+    }
+
+    /** Mask-only copy for simulation; the colour plane is not carried over. */
+    public BitBoard copyMasks() {
+        BitBoard copy = new BitBoard(width, height, false);
+        System.arraycopy(rows, 0, copy.rows, 0, height);
+        return copy;
+    }
+
+    /** True when both boards have the same size and occupancy; colours are ignored. */
+    public boolean sameMasks(BitBoard other) {
+        return width == other.width && height == other.height && Arrays.equals(rows, other.rows);
+    }
+
+    /** Overwrite this board's masks with another board of the same size. */
+    public void copyMasksFrom(BitBoard other) {
+        System.arraycopy(other.rows, 0, rows, 0, height);
+    }
+}
@@ -0,0 +1,171 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered block tiles for one block size, so drawing a cell is a single
+ * drawImage instead of a fill, four bevel lines, a border and two derived
+ * colours. Tiles are drawn once with exactly the calls the board used to
+ * make per cell, so the picture is unchanged.
+ *
+ * Per piece colour there are three tiles:
+ * <ul>
+ *   <li>bevelled: the split-screen look, highlight top/left and shadow bottom/right</li>
+ *   <li>flat: the single-player look, a plain fill with a black border one pixel
+ *       past the cell, so the tile is {@code size + 1} square</li>
+ *   <li>flat ghost: the piece colour at alpha 100, no border</li>
+ * </ul>
+ * plus one translucent grey ghost tile for split-screen, and the split-screen
+ * board background (gradient and grid) for the last board size asked for.
+ *
+ * Images come from the screen's GraphicsConfiguration when there is one, so
+ * Java2D can cache them in video memory; headless runs get plain ARGB images.
+ * Themes do not change block colours, so one set of tiles serves every theme.
+ */
+public final class BlockSprites {
+    private static final Color GHOST_COLOR = new Color(200, 200, 200, 100);
+    private static final BasicStroke GRID_STROKE = new BasicStroke(0.5f);
+    private static final Color BOARD_TOP = Color.BLACK;
+    private static final Color BOARD_BOTTOM = new Color(20, 20, 20);
+    private static final Color GRID_COLOR = new Color(40, 40, 40);
+    private static final int GHOST_ALPHA = 100;
+
+    private final int size;
+    private final BufferedImage[] bevelled;
+    private final BufferedImage[] flat;
+    private final BufferedImage[] flatGhosts;
+    private final BufferedImage ghost;
+
+    private BufferedImage boardBackground;
+    private int boardColumns;
+    private int boardRows;
+
+    public BlockSprites(int size, Color[] colors) {
+        this.size = size;
+        bevelled = new BufferedImage[colors.length];
+        flat = new BufferedImage[colors.length];
+        flatGhosts = new BufferedImage[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            bevelled[i] = bevelledTile(size, colors[i]);
+            flat[i] = flatTile(size, colors[i]);
+            flatGhosts[i] = flatGhostTile(size, colors[i]);
+        }
+        ghost = ghostTile(size);
+    }
+
+    public int size() { return size; }
+
+    /** Bevelled tile for palette entry {@code color}; draw at the cell's top-left corner. */
+    public BufferedImage bevelled(int color) { return bevelled[color % bevelled.length]; }
+    public BufferedImage flat(int color) { return flat[color % flat.length]; }
+    public BufferedImage flatGhost(int color) { return flatGhosts[color % flatGhosts.length]; }
+    public BufferedImage ghost() { return ghost; }
+
+    /**
+     * Gradient and grid behind a split-screen board of columns x rows cells,
+     * one pixel larger than the board for the closing grid lines. Only the
+     * last size is kept, since both boards share it.
+     */
+    public BufferedImage boardBackground(int columns, int rows) {
+        if (boardBackground == null || columns != boardColumns || rows != boardRows) {
+            boardBackground = renderBoardBackground(columns, rows);
+            boardColumns = columns;
+            boardRows = rows;
+        }
+        return boardBackground;
+    }
+
+    private BufferedImage renderBoardBackground(int columns, int rows) {
+        int width = columns * size;
+        int height = rows * size;
+        BufferedImage image = createImage(width + 1, height + 1);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, BOARD_TOP, width, height, BOARD_BOTTOM));
+        g.fillRect(0, 0, width, height);
+
+        g.setColor(GRID_COLOR);
+        g.setStroke(GRID_STROKE);
+        for (int x = 0; x <= columns; x++) {
+            g.drawLine(x * size, 0, x * size, height);
+        }
+        for (int y = 0; y <= rows; y++) {
+            g.drawLine(0, y * size, width, y * size);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage bevelledTile(int size, Color color) {
+        BufferedImage tile = createImage(size, size);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Fill main block
+        g.setColor(color);
+        g.fillRect(1, 1, size - 2, size - 2);
+
+        // Highlight on top and left
+        g.setColor(color.brighter());
+        g.drawLine(1, 1, size - 2, 1);
+        g.drawLine(1, 1, 1, size - 2);
+
+        // Shadow on bottom and right
+        g.setColor(color.darker());
+        g.drawLine(size - 2, 1, size - 2, size - 2);
+        g.drawLine(1, size - 2, size - 2, size - 2);
+
+        // Border
+        g.setColor(Color.BLACK);
+        g.drawRect(0, 0, size - 1, size - 1);
+        g.dispose();
+        return tile;
+    }
+
+    private static BufferedImage flatTile(int size, Color color) {
+        BufferedImage tile = createImage(size + 1, size + 1);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(color);
+        g.fillRect(0, 0, size, size);
+        g.setColor(Color.BLACK);
+        g.drawRect(0, 0, size, size);
+        g.dispose();
+        return tile;
+    }
+
+    private static BufferedImage flatGhostTile(int size, Color color) {
+        BufferedImage tile = createImage(size, size);
+        Graphics2D g = tile.createGraphics();
+        g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), GHOST_ALPHA));
+        g.fillRect(0, 0, size, size);
+        g.dispose();
+        return tile;
+    }
+
+    private static BufferedImage ghostTile(int size) {
+        BufferedImage tile = createImage(size, size);
+        Graphics2D g = tile.createGraphics();
+        g.setColor(GHOST_COLOR);
+        g.fillRect(1, 1, size - 2, size - 2);
+        g.drawRect(0, 0, size - 1, size - 1);
+        g.dispose();
+        return tile;
+    }
+
+    /** A translucent image, screen-compatible when there is a screen. */
+    static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+/**
+ * Evaluation features kept alongside a BitBoard and updated incrementally:
+ * column heights, filled cells per column (holes are height minus filled),
+ * filled cells per row and the number of full rows.
+ *
+ * Placing or removing a piece costs O(piece cells); clearing rows costs
+ * O(height) for the row shift plus a short rescan of any column whose top
+ * cell was cleared. Reading the features back is O(width), so the AI no
+ * longer scans the whole board for every candidate.
+ */
+public final class BoardFeatures {
+    private final int width;
+    private final int height;
+    private final int[] heights;  // 0 = empty column, height = column filled to the top
+    private final int[] filled;   // filled cells per column
+    private final int[] rowFill;  // filled cells per row
+    private int holes;            // empty cells below the top of their column
+    private int fullRows;
+
+    public BoardFeatures(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.heights = new int[width];
+        this.filled = new int[width];
+        this.rowFill = new int[height];
+    }
+
+    /** Recompute everything from a board of the same size: O(height) row operations. */
+    public void rebuild(BitBoard board) {
+        Arrays.fill(heights, 0);
+        Arrays.fill(filled, 0);
+        holes = 0;
+        fullRows = 0;
+        int covered = 0;
+        for (int y = 0; y < height; y++) {
+            int row = board.row(y);
+            for (int bits = row & ~covered; bits != 0; bits &= bits - 1) {
+                heights[Integer.numberOfTrailingZeros(bits)] = height - y;
+            }
+            for (int bits = row; bits != 0; bits &= bits - 1) {
+                filled[Integer.numberOfTrailingZeros(bits)]++;
+            }
+            holes += Integer.bitCount(covered & ~row);
+            covered |= row;
+            rowFill[y] = Integer.bitCount(row);
+            if (rowFill[y] == width) fullRows++;
+        }
+    }
+
+    /**
+     * Account for a piece placed at (x, y). {@code undo} receives the previous
+     * heights of the piece's columns and must be passed back to {@link #remove}.
+     */
+    public void place(PieceTable.Orientation piece, int x, int y, int[] undo) {
+        int cells = 0;
+        int heightGain = 0;
+        for (int c = 0; c < piece.width; c++) {
+            undo[c] = heights[x + c];
+        }
+        for (int i = 0; i < piece.cellX.length; i++) {
+            int row = y + piece.cellY[i];
+            if (row < 0 || row >= height) continue;
+            int col = x + piece.cellX[i];
+            filled[col]++;
+            if (++rowFill[row] == width) fullRows++;
+            if (height - row > heights[col]) heights[col] = height - row;
+            cells++;
+        }
+        for (int c = 0; c < piece.width; c++) {
+            heightGain += heights[x + c] - undo[c];
+        }
+        holes += heightGain - cells;
+    }
+
+    /** Exactly reverse a {@link #place} with the same arguments. */
+    public void remove(PieceTable.Orientation piece, int x, int y, int[] undo) {
+        int cells = 0;
+        int heightGain = 0;
+        for (int c = 0; c < piece.width; c++) {
+            heightGain += heights[x + c] - undo[c];
+            heights[x + c] = undo[c];
+        }
+        for (int i = 0; i < piece.cellX.length; i++) {
+            int row = y + piece.cellY[i];
+            if (row < 0 || row >= height) continue;
+            filled[x + piece.cellX[i]]--;
+            if (rowFill[row]-- == width) fullRows--;
+            cells++;
+        }
+        holes -= heightGain - cells;
+    }
+
+    /**
+     * Drop the full rows, mirroring {@link BitBoard#clearFullRows()}.
+     * {@code clearedBoard} is the board after its rows were cleared; it is
+     * only read for columns whose top cell was in a cleared row.
+     */
+    public void clearFullRows(BitBoard clearedBoard) {
+        int removed = fullRows;
+        if (removed == 0) return;
+
+        int write = height - 1;
+        for (int read = height - 1; read >= 0; read--) {
+            if (rowFill[read] == width) continue;
+            rowFill[write--] = rowFill[read];
+        }
+        for (int y = 0; y <= write; y++) {
+            rowFill[y] = 0;
+        }
+
+        holes = 0;
+        for (int x = 0; x < width; x++) {
+            filled[x] -= removed;
+            int h = heights[x] - removed;
+            // Every cleared row was at or below this column's top; if the top itself
+            // was cleared, walk down to the next surviving cell
+            while (h > 0 && !clearedBoard.isOccupied(x, height - h)) {
+                h--;
+            }
+            heights[x] = h;
+            holes += h - filled[x];
+        }
+        fullRows = 0;
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+    public int heightAt(int x) { return heights[x]; }
+    public int holesAt(int x) { return heights[x] - filled[x]; }
+    public int rowFill(int y) { return rowFill[y]; }
+    public int holes() { return holes; }
+    public int fullRows() { return fullRows; }
+
+    /** Depth of the well at column x; the side walls count as full height. */
+    public int wellDepth(int x) {
+        int left = x == 0 ? height : heights[x - 1];
+        int right = x == width - 1 ? height : heights[x + 1];
+        return Math.max(0, Math.min(left, right) - heights[x]);
+    }
+}
@@ -0,0 +1,137 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Cached image of one board's locked cells and grid. {@link #image} only
+ * redraws the rows whose cells changed since the last call, so a frame
+ * costs one drawImage for the whole board, and a lock or line clear costs
+ * the rows it touched instead of every cell.
+ *
+ * Two looks, matching the old per-cell drawing:
+ * <ul>
+ *   <li>{@link #flat}: single-player, flat tiles on a transparent
+ *       background with a grey grid drawn over them</li>
+ *   <li>{@link #bevelled}: split-screen, bevelled tiles on the gradient and
+ *       grid background</li>
+ * </ul>
+ * Either way the image is one pixel larger than the board for the closing
+ * grid lines and is drawn at the board's top-left corner.
+ */
+public final class BoardLayer {
+    private static final Color FLAT_GRID_COLOR = Color.GRAY;
+
+    private final BlockSprites sprites;
+    private final boolean bevelled;
+    private BufferedImage image;
+    private int[][] drawn; // cells as last drawn
+
+    private BoardLayer(BlockSprites sprites, boolean bevelled) {
+        this.sprites = sprites;
+        this.bevelled = bevelled;
+    }
+
+    public static BoardLayer flat(BlockSprites sprites) {
+        return new BoardLayer(sprites, false);
+    }
+
+    public static BoardLayer bevelled(BlockSprites sprites) {
+        return new BoardLayer(sprites, true);
+    }
+
+    /** First row of {@code cells} that differs from the image, or -1 when it is up to date. */
+    public int firstChangedRow(int[][] cells) {
+        if (!sameSize(cells)) return 0;
+        for (int y = 0; y < cells.length; y++) {
+            if (!Arrays.equals(cells[y], drawn[y])) return y;
+        }
+        return -1;
+    }
+
+    /** Last row of {@code cells} that differs from the image, or -1 when it is up to date. */
+    public int lastChangedRow(int[][] cells) {
+        if (!sameSize(cells)) return cells.length - 1;
+        for (int y = cells.length - 1; y >= 0; y--) {
+            if (!Arrays.equals(cells[y], drawn[y])) return y;
+        }
+        return -1;
+    }
+
+    /** The layer for {@code cells} (rows of colour indices, 0 empty), redrawing changed rows first. */
+    public BufferedImage image(int[][] cells) {
+        int rows = cells.length;
+        int columns = rows > 0 ? cells[0].length : 0;
+        int size = sprites.size();
+        if (!sameSize(cells)) {
+            image = BlockSprites.createImage(columns * size + 1, rows * size + 1);
+            drawn = new int[rows][];
+            if (bevelled) {
+                Graphics2D g = image.createGraphics();
+                g.drawImage(sprites.boardBackground(columns, rows), 0, 0, null);
+                g.dispose();
+            }
+        }
+
+        Graphics2D g = null;
+        for (int y = 0; y < rows; y++) {
+            if (Arrays.equals(cells[y], drawn[y])) continue;
+            if (g == null) {
+                g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            }
+            if (bevelled) {
+                drawBevelledRow(g, cells, y, columns, size);
+            } else {
+                drawFlatRow(g, cells, y, columns, size);
+            }
+            drawn[y] = cells[y].clone();
+        }
+        if (g != null) g.dispose();
+        return image;
+    }
+
+    private boolean sameSize(int[][] cells) {
+        return drawn != null && drawn.length == cells.length
+                && (cells.length == 0 || image.getWidth() == cells[0].length * sprites.size() + 1);
+    }
+
+    private void drawBevelledRow(Graphics2D g, int[][] cells, int y, int columns, int size) {
+        int top = y * size;
+        g.setClip(0, top, columns * size, size);
+        g.drawImage(sprites.boardBackground(columns, cells.length), 0, 0, null);
+        for (int x = 0; x < columns; x++) {
+            if (cells[y][x] != 0) {
+                g.drawImage(sprites.bevelled(cells[y][x] - 1), x * size, top, null);
+            }
+        }
+    }
+
+    // Flat tiles overhang the cell by a pixel, but the grid covers that pixel,
+    // so the strip is this row's cells with the grid lines around them
+    private void drawFlatRow(Graphics2D g, int[][] cells, int y, int columns, int size) {
+        int top = y * size;
+        int width = columns * size;
+        g.setClip(0, top, width + 1, size + 1);
+        Composite composite = g.getComposite();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, top, width + 1, size + 1);
+        g.setComposite(composite);
+
+        for (int x = 0; x < columns; x++) {
+            if (cells[y][x] != 0) {
+                g.drawImage(sprites.flat(cells[y][x] - 1), x * size, top, null);
+            }
+        }
+
+        g.setColor(FLAT_GRID_COLOR);
+        for (int x = 0; x <= columns; x++) {
+            g.drawLine(x * size, top, x * size, top + size);
+        }
+        g.drawLine(0, top, width, top);
+        g.drawLine(0, top + size, width, top + size);
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.function.LongPredicate;
+
+/**
+ * Fixed-size table of long values keyed by 64-bit hashes, the storage behind
+ * {@link EvalCache} and {@link MoveCache}. Slots are grouped into 4-way
+ * buckets; a key goes into its own slot if it has one, else an empty or
+ * stale slot, else the one a clock (second-chance) hand per bucket picks.
+ *
+ * The table is shared between threads without locks: each slot stores the
+ * value and {@code key ^ value}, so a torn or racing write simply reads back
+ * as a miss rather than another key's value.
+ */
+public final class ClockTable {
+    private static final int WAYS = 4;
+
+    private final int bucketMask;
+    private final long[] checks;     // key ^ value
+    private final long[] values;
+    private final boolean[] referenced;
+    private final byte[] hands;
+
+    /** @param capacity maximum entries, rounded up to a power of two (at least 4) */
+    public ClockTable(int capacity) {
+        int needed = Math.max(1, (capacity + WAYS - 1) / WAYS);
+        int buckets = needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+        bucketMask = buckets - 1;
+        checks = new long[buckets * WAYS];
+        values = new long[buckets * WAYS];
+        referenced = new boolean[buckets * WAYS];
+        hands = new byte[buckets];
+    }
+
+    public int capacity() {
+        return checks.length;
+    }
+
+    /**
+     * Value stored under {@code key}, or {@code missing} when absent. The
+     * value returned is the one the check word was verified against, so a
+     * racing put to the same slot reads back as a miss, never as another
+     * key's value. A hit gives the entry a second chance against eviction.
+     */
+    public long get(long key, long missing) {
+        key = nonZero(key);
+        int base = bucket(key) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            long value = values[i];
+            if ((checks[i] ^ value) == key) {
+                referenced[i] = true;
+                return value;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Store {@code value} under {@code key}. Slots whose value {@code stale}
+     * accepts are reused before live ones; pass null when nothing goes stale.
+     * Returns true when a live entry for another key was evicted.
+     */
+    public boolean put(long key, long value, LongPredicate stale) {
+        key = nonZero(key);
+        int bucket = bucket(key);
+        int base = bucket * WAYS;
+
+        // Refresh the key's own slot, or take an empty or stale one
+        int free = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            long old = values[i];
+            if ((checks[i] ^ old) == key) {
+                store(i, key, value);
+                return false;
+            }
+            if (free < 0 && ((checks[i] | old) == 0 || (stale != null && stale.test(old)))) {
+                free = i;
+            }
+        }
+        if (free >= 0) {
+            store(free, key, value);
+            return false;
+        }
+
+        // Second chance: skip recently referenced slots once, clearing their bit
+        int hand = hands[bucket];
+        for (int step = 0; step < 2 * WAYS; step++) {
+            int slot = base + hand;
+            hand = (hand + 1) & (WAYS - 1);
+            if (!referenced[slot] || step == 2 * WAYS - 1) {
+                store(slot, key, value);
+                break;
+            }
+            referenced[slot] = false;
+        }
+        hands[bucket] = (byte) hand;
+        return true;
+    }
+
+    private void store(int slot, long key, long value) {
+        values[slot] = value;
+        checks[slot] = key ^ value;
+        referenced[slot] = false;
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+
+    // An empty slot reads back as key 0, so 0 is never used as a key
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded transposition cache for board evaluations, keyed by
+ * {@link BitBoard#hash64()}. Scores are stored as raw double bits in a
+ * {@link ClockTable}, so fork/join workers share it without locks and a torn
+ * or racing write reads back as a miss. Two different boards sharing a
+ * 64-bit hash would share a score; that is accepted as vanishingly unlikely.
+ */
+public final class EvalCache {
+    private static final long MISSING = Double.doubleToRawLongBits(Double.NaN); // scores are never NaN
+
+    private final ClockTable table;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** @param capacity maximum entries, rounded up to a power of two (at least 4) */
+    public EvalCache(int capacity) {
+        table = new ClockTable(capacity);
+    }
+
+    public int capacity() {
+        return table.capacity();
+    }
+
+    /** Cached score for {@code key}, or NaN when absent. */
+    public double get(long key) {
+        long bits = table.get(key, MISSING);
+        if (bits == MISSING) {
+            misses.increment();
+            return Double.NaN;
+        }
+        hits.increment();
+        return Double.longBitsToDouble(bits);
+    }
+
+    public void put(long key, double score) {
+        table.put(key, Double.doubleToRawLongBits(score), null);
+    }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EvalCache[capacity=%d, hits=%d, misses=%d, hitRate=%.1f%%]",
+                capacity(), hits(), misses(), hitRate() * 100);
+    }
+}
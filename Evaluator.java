@@ -0,0 +1,33 @@
+/**
+ * Scores candidate boards for {@link MoveSearch}; higher is better.
+ *
+ * An evaluator only sees the {@link FeatureVector} the search extracted for
+ * the candidate, so it can be swapped without touching the search. The
+ * same instance is called from fork/join workers and server threads at
+ * once, so implementations must be thread-safe, ideally immutable.
+ *
+ * Evaluators are found by name through {@link Evaluators#byName}. Third
+ * party ones can be plugged in as a {@link java.util.ServiceLoader} service:
+ * a class with a public no-argument constructor, listed in
+ * {@code META-INF/services/Evaluator} on the classpath.
+ */
+public interface Evaluator {
+    /** Name used to select this evaluator in config and on the command line. */
+    String name();
+
+    double score(FeatureVector features);
+
+    /**
+     * Bit i set for each {@link FeatureVector} feature i that {@link #score}
+     * reads; the search skips extracting the others.
+     */
+    default int requiredFeatures() {
+        return FeatureVector.ALL;
+    }
+
+    /**
+     * Reward for clearing {@code lines} rows with an earlier piece of the
+     * lookahead, added to the score of every board that follows from it.
+     */
+    double lineClearBonus(int lines);
+}
@@ -0,0 +1,172 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Weighted evaluator: a named weight vector over {@link FeatureVector}'s
+ * features. A board scores {@code sum(weight[i] * feature[i])}, so penalties
+ * have negative weights. {@link #DEFAULT} holds the original hand-picked
+ * values; tuned profiles are written by {@link WeightTuner}.
+ *
+ * Profiles are flat JSON files, by convention {@code evaluators/<name>.json},
+ * read line by line like GameData's files so the game needs no JSON library:
+ * <pre>
+ * {
+ *   "name": "tuned",
+ *   "height": -0.5,
+ *   "bumpiness": -0.5,
+ *   "holes": -2.0,
+ *   "linesSquared": 10.0
+ * }
+ * </pre>
+ * Features missing from a file weigh 0 and unknown keys are ignored, so a
+ * profile keeps loading when features are added.
+ */
+public final class EvaluatorProfile implements Evaluator {
+    public static final String DIRECTORY = "evaluators";
+    public static final String[] FEATURES = FeatureVector.NAMES;
+
+    public static final EvaluatorProfile DEFAULT = new EvaluatorProfile("default", weights(
+            FeatureVector.HEIGHT, -0.5, FeatureVector.BUMPINESS, -0.5,
+            FeatureVector.HOLES, -2, FeatureVector.LINES_SQUARED, 10));
+
+    private final String name;
+    private final double[] weights;
+    private final int[] active;     // features with a non-zero weight, in index order
+    private final double[] activeWeights;
+    private final int required;
+
+    public EvaluatorProfile(String name, double[] weights) {
+        if (weights.length != FEATURES.length) {
+            throw new IllegalArgumentException("Expected " + FEATURES.length + " weights, got " + weights.length);
+        }
+        this.name = name;
+        this.weights = weights.clone();
+        int count = 0;
+        for (double weight : weights) {
+            if (weight != 0) count++;
+        }
+        active = new int[count];
+        activeWeights = new double[count];
+        int mask = 0;
+        for (int i = 0, n = 0; i < weights.length; i++) {
+            if (weights[i] == 0) continue;
+            active[n] = i;
+            activeWeights[n++] = weights[i];
+            mask |= 1 << i;
+        }
+        required = mask;
+    }
+
+    /** Weight vector from (feature, weight) pairs; the other features weigh 0. */
+    public static double[] weights(double... pairs) {
+        double[] weights = new double[FEATURES.length];
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            weights[(int) pairs[i]] = pairs[i + 1];
+        }
+        return weights;
+    }
+
+    @Override
+    public String name() { return name; }
+    public double weight(int feature) { return weights[feature]; }
+    public double[] weights() { return weights.clone(); }
+
+    @Override
+    public double score(FeatureVector features) {
+        double score = 0;
+        for (int i = 0; i < active.length; i++) {
+            score += features.get(active[i]) * activeWeights[i];
+        }
+        return score;
+    }
+
+    @Override
+    public int requiredFeatures() {
+        return required;
+    }
+
+    @Override
+    public double lineClearBonus(int lines) {
+        return lines * lines * weights[FeatureVector.LINES_SQUARED] + lines * weights[FeatureVector.LINES];
+    }
+
+    /** Where a profile called {@code name} lives. */
+    public static File fileFor(String name) {
+        return new File(DIRECTORY, name + ".json");
+    }
+
+    public static EvaluatorProfile load(File file) throws IOException {
+        String name = file.getName().replaceFirst("\\.json$", "");
+        double[] weights = new double[FEATURES.length];
+        boolean anyWeight = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                String key = unquote(line.substring(0, colon));
+                String value = unquote(line.substring(colon + 1).trim().replaceAll(",$", ""));
+                if (key.equals("name")) {
+                    name = value;
+                    continue;
+                }
+                int feature = FeatureVector.indexOf(key);
+                if (feature < 0) continue;
+                try {
+                    weights[feature] = Double.parseDouble(value);
+                    anyWeight = true;
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad weight for " + key + " in " + file + ": " + value);
+                }
+            }
+        }
+        if (!anyWeight) {
+            throw new IOException("No weights in " + file);
+        }
+        return new EvaluatorProfile(name, weights);
+    }
+
+    public void save(File file) throws IOException {
+        save(file, Map.of());
+    }
+
+    /** Write the profile followed by {@code extra} numbers, e.g. how it was tuned; loading ignores them. */
+    public void save(File file, Map<String, ? extends Number> extra) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println("{");
+            writer.print("  \"name\": \"" + name + "\"");
+            for (int i = 0; i < FEATURES.length; i++) {
+                writer.print(",\n  \"" + FEATURES[i] + "\": " + weights[i]);
+            }
+            for (Map.Entry<String, ? extends Number> entry : extra.entrySet()) {
+                writer.print(",\n  \"" + entry.getKey() + "\": " + entry.getValue());
+            }
+            writer.println();
+            writer.println("}");
+        }
+    }
+
+    private static String unquote(String text) {
+        text = text.trim();
+        if (text.startsWith("{")) text = text.substring(1).trim();
+        if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+            return text.substring(1, text.length() - 1);
+        }
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(weights);
+    }
+}
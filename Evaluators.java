@@ -0,0 +1,69 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Looks up {@link Evaluator}s by name, in this order:
+ * <ol>
+ *   <li>built-ins: {@code default} (the original hand-picked weights) and
+ *       {@code lee} (Yiyuan Lee's published weights for height, lines,
+ *       holes and bumpiness)</li>
+ *   <li>evaluators registered with {@link #register}</li>
+ *   <li>{@link ServiceLoader} providers of {@link Evaluator}, by {@link Evaluator#name()}</li>
+ *   <li>a profile file, {@code evaluators/<name>.json}</li>
+ * </ol>
+ */
+public final class Evaluators {
+    public static final String DEFAULT_NAME = "default";
+
+    private static final Map<String, Evaluator> REGISTERED = new LinkedHashMap<>();
+
+    static {
+        register(EvaluatorProfile.DEFAULT);
+        register(new EvaluatorProfile("lee", EvaluatorProfile.weights(
+                FeatureVector.HEIGHT, -0.510066, FeatureVector.LINES, 0.760666,
+                FeatureVector.HOLES, -0.35663, FeatureVector.BUMPINESS, -0.184483)));
+    }
+
+    private Evaluators() {}
+
+    public static synchronized void register(Evaluator evaluator) {
+        REGISTERED.put(evaluator.name(), evaluator);
+    }
+
+    /** @throws IOException when no evaluator has that name or its profile cannot be read */
+    public static Evaluator byName(String name) throws IOException {
+        synchronized (Evaluators.class) {
+            Evaluator registered = REGISTERED.get(name);
+            if (registered != null) return registered;
+        }
+        try {
+            for (Evaluator provided : ServiceLoader.load(Evaluator.class)) {
+                if (provided.name().equals(name)) return provided;
+            }
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Skipping evaluator plugins: " + e.getMessage());
+        }
+        File profile = EvaluatorProfile.fileFor(name);
+        if (profile.isFile()) {
+            return EvaluatorProfile.load(profile);
+        }
+        throw new IOException("Unknown evaluator '" + name + "' (no built-in, plugin or " + profile + ")");
+    }
+
+    /** {@link #byName}, falling back to the default evaluator with a warning. */
+    public static Evaluator byNameOrDefault(String name) {
+        if (name == null || name.isEmpty()) {
+            return EvaluatorProfile.DEFAULT;
+        }
+        try {
+            return byName(name);
+        } catch (IOException e) {
+            System.err.println("Using the default evaluator: " + e.getMessage());
+            return EvaluatorProfile.DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Primitive features of one candidate board, filled in place by
+ * {@link #extract} so scoring a candidate allocates nothing. The search
+ * keeps one vector per thread and hands it to an {@link Evaluator}.
+ *
+ * Like {@link BoardFeatures}, transitions are kept incrementally:
+ * {@link #prepare} totals them for the parent board once, and each
+ * candidate only recounts the rows its piece touches.
+ *
+ * Extraction can be limited to the features an evaluator asks for (see
+ * {@link Evaluator#requiredFeatures}); the others read as 0. Height,
+ * bumpiness, holes and lines are always filled since they cost nothing
+ * extra once the heights have been walked.
+ *
+ * Features describe the board with the piece placed but before full rows
+ * are cleared, as the AI has always scored it. Row transitions treat the
+ * side walls as filled; column transitions treat the floor as filled and
+ * the space above the board as empty.
+ */
+public final class FeatureVector {
+    public static final int HEIGHT = 0;             // sum of column heights
+    public static final int BUMPINESS = 1;          // sum of height differences between neighbouring columns
+    public static final int HOLES = 2;              // empty cells below the top of their column
+    public static final int LINES_SQUARED = 3;      // full rows, squared
+    public static final int WELLS = 4;              // sum of well depths, walls counting as full height
+    public static final int ROW_TRANSITIONS = 5;    // filled/empty changes along each row
+    public static final int COLUMN_TRANSITIONS = 6; // filled/empty changes down each column
+    public static final int MAX_HEIGHT = 7;         // tallest column
+    public static final int LINES = 8;              // full rows
+    public static final String[] NAMES = {"height", "bumpiness", "holes", "linesSquared", "wells",
+            "rowTransitions", "columnTransitions", "maxHeight", "lines"};
+    public static final int COUNT = NAMES.length;
+    public static final int ALL = (1 << COUNT) - 1;
+
+    private final int[] values = new int[COUNT];
+    private final int[] heights = new int[BitBoard.MAX_WIDTH];
+    private int width;
+    private long walls;               // padded-row bits for the side walls; bit 32 on the widest board
+    private int baseRowTransitions;   // totals for the prepared board
+    private int baseColumnTransitions;
+
+    public int get(int feature) { return values[feature]; }
+    public int width() { return width; }
+    public int heightAt(int x) { return heights[x]; }
+
+    /** Index of a feature name in {@link #NAMES}, or -1. */
+    public static int indexOf(String name) {
+        for (int i = 0; i < COUNT; i++) {
+            if (NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** Total the transitions of {@code board}; call before extracting its candidates. */
+    public void prepare(BitBoard board) {
+        width = board.width();
+        walls = 1L | 1L << (width + 1);
+        baseRowTransitions = 0;
+        baseColumnTransitions = 0;
+        for (int r = 0; r <= board.height(); r++) {
+            int row = r < board.height() ? board.row(r) : board.fullRowMask(); // the floor is full
+            if (r < board.height()) baseRowTransitions += rowTransitions(row);
+            baseColumnTransitions += Integer.bitCount(row ^ (r > 0 ? board.row(r - 1) : 0));
+        }
+    }
+
+    /**
+     * Fill the vector for {@code board} with {@code piece} placed at (x, y).
+     * {@code board} must be the one last passed to {@link #prepare} and must
+     * not include the placement; {@code features} must include it.
+     * {@code required} has bit i set for each feature i the caller reads.
+     */
+    public void extract(BitBoard board, BoardFeatures features, PieceTable.Orientation piece, int x, int y,
+                        int required) {
+        int height = board.height();
+        int aggregate = 0;
+        int tallest = 0;
+        int bumpiness = 0;
+        for (int c = 0; c < width; c++) {
+            int h = features.heightAt(c);
+            heights[c] = h;
+            aggregate += h;
+            tallest = Math.max(tallest, h);
+            if (c < width - 1) bumpiness += Math.abs(h - features.heightAt(c + 1));
+        }
+        int wells = 0;
+        if ((required & 1 << WELLS) != 0) {
+            for (int c = 0; c < width; c++) {
+                wells += features.wellDepth(c);
+            }
+        }
+
+        int rowTransitions = 0;
+        int columnTransitions = 0;
+        if ((required & (1 << ROW_TRANSITIONS | 1 << COLUMN_TRANSITIONS)) != 0) {
+            rowTransitions = baseRowTransitions;
+            columnTransitions = baseColumnTransitions;
+            // Recount the piece's rows, and the row boundaries above and below each of them
+            int full = board.fullRowMask();
+            int top = Math.max(0, y);
+            int bottom = Math.min(height, y + piece.rowMasks.length);
+            int oldAbove = top > 0 ? board.row(top - 1) : 0;
+            int newAbove = oldAbove;
+            for (int r = top; r <= bottom; r++) {
+                int oldRow = r < height ? board.row(r) : full;
+                int newRow = oldRow;
+                if (r < bottom) {
+                    newRow |= (piece.rowMasks[r - y] << x) & full;
+                    rowTransitions += rowTransitions(newRow) - rowTransitions(oldRow);
+                }
+                columnTransitions += Integer.bitCount(newRow ^ newAbove) - Integer.bitCount(oldRow ^ oldAbove);
+                oldAbove = oldRow;
+                newAbove = newRow;
+            }
+        }
+
+        int lines = features.fullRows();
+        values[HEIGHT] = aggregate;
+        values[BUMPINESS] = bumpiness;
+        values[HOLES] = features.holes();
+        values[LINES_SQUARED] = lines * lines;
+        values[WELLS] = wells;
+        values[ROW_TRANSITIONS] = rowTransitions;
+        values[COLUMN_TRANSITIONS] = columnTransitions;
+        values[MAX_HEIGHT] = tallest;
+        values[LINES] = lines;
+    }
+
+    // Walls are bits 0 and width + 1 of the padded row; the last pair is wall against nothing
+    private int rowTransitions(int row) {
+        long padded = (long) row << 1 | walls;
+        return Long.bitCount(padded ^ (padded >>> 1)) - 1;
+    }
+}
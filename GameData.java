@@ -63,6 +63,9 @@ public class GameData {
         public int aiWinScore = 500;
         public int fieldWidth = 10;  // Field width in cells
         public int fieldHeight = 20; // Field height in cells
+        public String aiEvaluator = "default"; // Evaluators.byName: built-in, plugin or evaluators/<name>.json
+        public boolean activeRendering = false; // Render from a fixed-rate loop instead of on repaint()
+        public int renderFps = 60;              // Target frame rate of the active render loop
         
         public Config() {}
         
@@ -122,7 +125,10 @@ public class GameData {
             writer.println("  \"musicEnabled\": " + config.musicEnabled + ",");
             writer.println("  \"musicVolume\": " + config.musicVolume + ",");
             writer.println("  \"effectsVolume\": " + config.effectsVolume + ",");
-            writer.println("  \"aiWinScore\": " + config.aiWinScore);
+            writer.println("  \"aiWinScore\": " + config.aiWinScore + ",");
+            writer.println("  \"aiEvaluator\": \"" + config.aiEvaluator + "\",");
+            writer.println("  \"activeRendering\": " + config.activeRendering + ",");
+            writer.println("  \"renderFps\": " + config.renderFps);
             writer.println("}");
             return true;
         } catch (IOException e) {
@@ -159,6 +165,12 @@ public class GameData {
                     config.effectsVolume = extractIntValue(line);
                 } else if (line.contains("aiWinScore")) {
                     config.aiWinScore = extractIntValue(line);
+                } else if (line.contains("aiEvaluator")) {
+                    config.aiEvaluator = extractStringValue(line);
+                } else if (line.contains("activeRendering")) {
+                    config.activeRendering = extractBooleanValue(line);
+                } else if (line.contains("renderFps")) {
+                    config.renderFps = extractIntValue(line);
                 }
             }
         } catch (IOException e) {
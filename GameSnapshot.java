@@ -0,0 +1,87 @@
+/**
+ * What the game looked like after one simulation tick, handed from the
+ * simulation thread to the renderer through a volatile field. Every field is
+ * final and the cell arrays are never written after capture, so the renderer
+ * reads a whole, consistent frame without locking while the next tick runs.
+ */
+public final class GameSnapshot {
+
+    /** One player's board and falling piece. */
+    public static final class Player {
+        public final int[][] cells;      // locked cells; shared with later snapshots while the board is unchanged
+        public final long boardHash;     // BitBoard.hash64 of the board the cells were copied from
+        public final int piece;
+        public final int rotation;
+        public final int x;
+        public final int y;
+        public final int ghostY;         // row the piece would land on
+        public final double fall;        // part of a row gravity has moved the piece toward y + 1; 0 when resting
+        public final double fallPerTick; // rows of gravity per tick at this player's level
+        public final int nextPiece;
+        public final int score;
+        public final int level;
+        public final int lines;
+        public final boolean gameOver;
+
+        public Player(int[][] cells, long boardHash, int piece, int rotation, int x, int y, int ghostY,
+                      double fall, double fallPerTick, int nextPiece, int score, int level, int lines,
+                      boolean gameOver) {
+            this.cells = cells;
+            this.boardHash = boardHash;
+            this.piece = piece;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+            this.ghostY = ghostY;
+            this.fall = fall;
+            this.fallPerTick = fallPerTick;
+            this.nextPiece = nextPiece;
+            this.score = score;
+            this.level = level;
+            this.lines = lines;
+            this.gameOver = gameOver;
+        }
+
+        /** Copy of {@code cells}, or the previous snapshot's copy when the board has not changed since. */
+        public static int[][] cellsFor(int[][] cells, long boardHash, Player previous) {
+            if (previous != null && previous.boardHash == boardHash && previous.cells.length == cells.length
+                    && (cells.length == 0 || previous.cells[0].length == cells[0].length)) {
+                return previous.cells;
+            }
+            int[][] copy = new int[cells.length][];
+            for (int y = 0; y < cells.length; y++) {
+                copy[y] = cells[y].clone();
+            }
+            return copy;
+        }
+
+        /** Whether the two differ in anything drawn at whole-row precision. */
+        public boolean sameFrame(Player other) {
+            return other != null && cells == other.cells && piece == other.piece && rotation == other.rotation
+                    && x == other.x && y == other.y && nextPiece == other.nextPiece && score == other.score
+                    && level == other.level && lines == other.lines && gameOver == other.gameOver;
+        }
+    }
+
+    public final Player player1;
+    public final Player player2; // null outside multiplayer
+    public final boolean paused;
+    public final long tickNanos;  // System.nanoTime() when the tick ran
+
+    public GameSnapshot(Player player1, Player player2, boolean paused, long tickNanos) {
+        this.player1 = player1;
+        this.player2 = player2;
+        this.paused = paused;
+        this.tickNanos = tickNanos;
+    }
+
+    public Player player(boolean isPlayer2) {
+        return isPlayer2 ? player2 : player1;
+    }
+
+    /** Whether the two snapshots draw the same picture, ignoring how far the pieces have slid. */
+    public boolean sameFrame(GameSnapshot other) {
+        return other != null && paused == other.paused && player1.sameFrame(other.player1)
+                && (player2 == null ? other.player2 == null : player2.sameFrame(other.player2));
+    }
+}
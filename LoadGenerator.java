@@ -0,0 +1,394 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Load generator for a move server. Each simulated client is a real
+ * {@link TetrisServer} connection playing its own seeded {@link TetrisEngine}
+ * game: it asks for a move, drops the piece where the server said, reports
+ * the placement to the session and starts a new game after a top-out.
+ *
+ * Closed loop: every client sends its next request as soon as the previous
+ * reply arrives, so throughput is whatever the server sustains.
+ * Open loop: one timer thread sends requests at a fixed total rate,
+ * round-robin over the clients, whether or not earlier replies have arrived,
+ * and latency is measured from each request's scheduled time. A stalled
+ * server shows up as queueing delay rather than as fewer samples
+ * (coordinated omission). Requests go out as whole boards through
+ * {@link TetrisServer#submit}, since a session delta would depend on the
+ * previous reply; a client plays the first reply for its current piece and
+ * ignores later ones.
+ *
+ * Usage: java -cp ".;lib/gson-2.10.1.jar" LoadGenerator [options]
+ * <pre>
+ *   --clients N        concurrent clients (default 32)
+ *   --duration S       measured seconds (default 30)
+ *   --warmup S         unmeasured seconds first (default 5)
+ *   --mode closed|open (default closed)
+ *   --rate R           open loop: total requests per second (default 1000)
+ *   --host H --port P  server to load (default localhost:3000)
+ *   --embedded         start an in-process SimpleTetrisServer on the port
+ *   --json             use JSON instead of the binary protocol
+ *   --seed S           first game seed; client i plays seed S + i (default 1)
+ *   --report FILE      JSON results (default loadtest-report.json)
+ * </pre>
+ */
+public class LoadGenerator {
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+    private static final int OPEN_LOOP_MAX_IN_FLIGHT = 1 << 16; // per client; the schedule, not replies, limits sending
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--clients": settings.clients = Integer.parseInt(args[++i]); break;
+                case "--duration": settings.durationSeconds = Double.parseDouble(args[++i]); break;
+                case "--warmup": settings.warmupSeconds = Double.parseDouble(args[++i]); break;
+                case "--mode": settings.openLoop = args[++i].equalsIgnoreCase("open"); break;
+                case "--rate": settings.rate = Double.parseDouble(args[++i]); break;
+                case "--host": settings.host = args[++i]; break;
+                case "--port": settings.port = Integer.parseInt(args[++i]); break;
+                case "--embedded": settings.embedded = true; break;
+                case "--json": settings.binary = false; break;
+                case "--seed": settings.seed = Long.parseLong(args[++i]); break;
+                case "--report": settings.reportFile = args[++i]; break;
+                default: System.err.println("Ignoring unknown option " + args[i]);
+            }
+        }
+
+        SimpleTetrisServer server = settings.embedded ? startServer(settings.port) : null;
+        try {
+            Report report = run(settings, server);
+            print(report);
+            try (Writer writer = new FileWriter(settings.reportFile)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+            }
+            System.out.println("📝 Report written to " + settings.reportFile);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private static SimpleTetrisServer startServer(int port) throws InterruptedException {
+        SimpleTetrisServer server = new SimpleTetrisServer(port, Runtime.getRuntime().availableProcessors());
+        server.setVerbose(false);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("❌ Load test server failed: " + e.getMessage());
+            }
+        }, "loadtest-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(200);
+        return server;
+    }
+
+    private static Report run(Settings settings, SimpleTetrisServer server) throws InterruptedException {
+        SimulatedClient[] clients = new SimulatedClient[settings.clients];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new SimulatedClient(settings, settings.seed + i);
+        }
+        long measureFrom = settings.openLoop ? runOpenLoop(settings, clients) : runClosedLoop(settings, clients);
+        // Replies still in flight at the end are waited for, so rate is over the real window
+        double elapsedSeconds = Math.max(settings.durationSeconds, (System.nanoTime() - measureFrom) / 1e9);
+
+        Report report = new Report();
+        report.date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        report.mode = settings.openLoop ? "open" : "closed";
+        report.server = server != null ? "embedded on port " + settings.port : settings.host + ":" + settings.port;
+        report.protocol = settings.binary ? "binary" : "json";
+        report.clients = settings.clients;
+        report.targetRate = settings.openLoop ? settings.rate : 0;
+        report.durationSeconds = elapsedSeconds;
+
+        int samples = 0;
+        for (SimulatedClient client : clients) {
+            samples += client.latencyCount;
+            report.errors += client.errors;
+            report.connectFailures += client.connected ? 0 : 1;
+            report.games += client.games;
+            report.piecesPlaced += client.pieces;
+            report.linesCleared += client.lines;
+            report.resyncs += client.resyncs;
+        }
+        long[] latencies = new long[samples];
+        int offset = 0;
+        for (SimulatedClient client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, offset, client.latencyCount);
+            offset += client.latencyCount;
+        }
+        Arrays.sort(latencies);
+
+        report.requests = samples;
+        report.throughput = samples / elapsedSeconds;
+        report.meanMs = samples == 0 ? 0 : Arrays.stream(latencies).average().orElse(0) / 1e6;
+        report.p50Ms = percentile(latencies, 0.50) / 1e6;
+        report.p99Ms = percentile(latencies, 0.99) / 1e6;
+        report.p999Ms = percentile(latencies, 0.999) / 1e6;
+        report.maxMs = samples == 0 ? 0 : latencies[samples - 1] / 1e6;
+        if (server != null && server.getMoveCache() != null) {
+            report.serverCacheHitRate = server.getMoveCache().hitRate();
+        }
+        return report;
+    }
+
+    // Every client on its own thread, each sending as soon as its last reply is in; returns when measuring began
+    private static long runClosedLoop(Settings settings, SimulatedClient[] clients) throws InterruptedException {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200); // let every client connect first
+        long measureFrom = start + (long) (settings.warmupSeconds * 1e9);
+        long end = measureFrom + (long) (settings.durationSeconds * 1e9);
+
+        Thread[] threads = new Thread[clients.length];
+        for (int i = 0; i < clients.length; i++) {
+            SimulatedClient client = clients[i];
+            threads[i] = new Thread(() -> client.runClosedLoop(start, measureFrom, end), "loadtest-client-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return measureFrom;
+    }
+
+    // This thread sends on schedule regardless of replies, then waits out the ones in flight
+    private static long runOpenLoop(Settings settings, SimulatedClient[] clients) {
+        for (SimulatedClient client : clients) {
+            client.connect();
+        }
+        long start = System.nanoTime();
+        long measureFrom = start + (long) (settings.warmupSeconds * 1e9);
+        long end = measureFrom + (long) (settings.durationSeconds * 1e9);
+        double interval = 1e9 / settings.rate;
+
+        AtomicInteger outstanding = new AtomicInteger();
+        for (long n = 0; ; n++) {
+            long intended = start + (long) (n * interval);
+            if (intended >= end) break;
+            waitUntil(intended); // a late timer sends the backlog at once; latency still counts from here
+            SimulatedClient client = clients[(int) (n % clients.length)];
+            if (client.connected) {
+                client.send(intended, measureFrom, outstanding);
+            }
+        }
+        // Every request completes or fails by its timeout
+        while (outstanding.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (SimulatedClient client : clients) {
+            client.close();
+        }
+        return measureFrom;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    private static void print(Report report) {
+        System.out.printf("%-7s %7s %9s %7s %10s %9s %9s %9s %9s%n",
+                "mode", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        System.out.printf("%-7s %7d %9d %7d %10.0f %9.2f %9.2f %9.2f %9.2f%n",
+                report.mode, report.clients, report.requests, report.errors, report.throughput,
+                report.p50Ms, report.p99Ms, report.p999Ms, report.maxMs);
+        System.out.println("🎮 " + report.games + " games, " + report.piecesPlaced + " pieces, "
+                + report.linesCleared + " lines, " + report.resyncs + " session resyncs");
+    }
+
+    /** One connection playing back-to-back games until the run ends. */
+    private static final class SimulatedClient {
+        final Settings settings;
+        final TetrisEngine engine;
+        TetrisServer client;
+        long[] latencies = new long[1024];
+        int latencyCount;
+        int errors;
+        int games;
+        int pieces;
+        int lines;
+        int resyncs;
+        boolean connected;
+
+        SimulatedClient(Settings settings, long seed) {
+            this.settings = settings;
+            this.engine = new TetrisEngine(BOARD_WIDTH, BOARD_HEIGHT, 1, seed);
+        }
+
+        void connect() {
+            client = new TetrisServer(settings.host, settings.port, settings.binary);
+            client.setVerbose(false);
+            if (settings.openLoop) {
+                client.setMaxInFlight(OPEN_LOOP_MAX_IN_FLIGHT);
+            }
+            connected = client.connect();
+        }
+
+        void close() {
+            resyncs = client.getResyncCount();
+            client.disconnect();
+        }
+
+        void runClosedLoop(long start, long measureFrom, long end) {
+            connect();
+            if (!connected) return;
+
+            try {
+                waitUntil(start);
+                while (true) {
+                    long sent = System.nanoTime();
+                    if (sent >= end) break;
+
+                    TetrisServer.OpMove move = client.getOptimalMove(gameState());
+                    long latency = System.nanoTime() - sent;
+
+                    if (sent >= measureFrom) {
+                        record(latency);
+                        if (move == null) errors++;
+                    }
+                    if (move == null && !client.isConnected()) break;
+                    play(move);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        // Open loop: ask about the current piece now, and play the answer whenever it comes
+        void send(long intended, long measureFrom, AtomicInteger outstanding) {
+            TetrisServer.PurGame gameState;
+            int piece;
+            synchronized (this) {
+                gameState = gameState();
+                piece = pieces;
+            }
+            outstanding.incrementAndGet();
+            CompletableFuture<TetrisServer.OpMove> reply;
+            try {
+                reply = client.submit(gameState);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outstanding.decrementAndGet();
+                return;
+            }
+            reply.whenComplete((move, error) -> {
+                onReply(move, System.nanoTime() - intended, intended >= measureFrom, piece);
+                outstanding.decrementAndGet();
+            });
+        }
+
+        private synchronized void onReply(TetrisServer.OpMove move, long latency, boolean measured, int piece) {
+            if (measured) {
+                record(latency);
+                if (move == null) errors++;
+            }
+            // Every request sent before the first reply asked about the same piece
+            if (move != null && piece == pieces) {
+                play(move);
+            }
+        }
+
+        private TetrisServer.PurGame gameState() {
+            return new TetrisServer.PurGame(BOARD_WIDTH, BOARD_HEIGHT,
+                    engine.getBoard().cells(), engine.getCurrentPiece(), engine.getNextPiece());
+        }
+
+        // Drop the piece where the server asked, or straight down if that spot is blocked
+        private void play(TetrisServer.OpMove move) {
+            BitBoard board = engine.getBoard();
+            int piece = engine.getCurrentPiece();
+            int rotation = move == null ? engine.getCurrentRotation() : move.opRotate & 3;
+            int x = move == null ? engine.getCurrentX() : move.opX;
+            PieceTable.Orientation shape = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+            if (board.collides(shape.rowMasks, shape.width, x, engine.getCurrentY())) {
+                rotation = engine.getCurrentRotation();
+                x = engine.getCurrentX();
+                shape = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+            }
+
+            int y = engine.getCurrentY();
+            while (!board.collides(shape.rowMasks, shape.width, x, y + 1)) {
+                y++;
+            }
+            BitBoard landed = board.copyMasks();
+            landed.place(shape.rowMasks, x, y, piece + 1);
+            int[] clearedRows = landed.fullRowIndices();
+
+            engine.dropAt(x, rotation);
+            client.notePlacement(piece, rotation, x, y, clearedRows);
+            pieces++;
+            lines += clearedRows.length;
+            if (engine.isGameOver()) {
+                games++;
+                engine.reset();
+                client.setUseSession(true); // next request syncs the empty board
+            }
+        }
+
+        private void record(long latency) {
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = latency;
+        }
+    }
+
+    private static final class Settings {
+        int clients = 32;
+        double durationSeconds = 30;
+        double warmupSeconds = 5;
+        boolean openLoop = false;
+        double rate = 1000;
+        String host = "localhost";
+        int port = 3000;
+        boolean embedded = false;
+        boolean binary = true;
+        long seed = 1;
+        String reportFile = "loadtest-report.json";
+    }
+
+    /** Results as written to the report file. */
+    static final class Report {
+        String date;
+        String mode;
+        String server;
+        String protocol;
+        int clients;
+        double targetRate;
+        double durationSeconds;
+        long requests;
+        long errors;
+        int connectFailures;
+        double throughput;
+        double meanMs;
+        double p50Ms;
+        double p99Ms;
+        double p999Ms;
+        double maxMs;
+        long games;
+        long piecesPlaced;
+        long linesCleared;
+        long resyncs;
+        Double serverCacheHitRate;
+    }
+}
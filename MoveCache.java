@@ -0,0 +1,108 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * Bounded best-move cache for SimpleTetrisServer, keyed by
+ * {@link #key(int, int, int[][], int, int)}: a 64-bit hash of the board size,
+ * occupancy (colours are ignored) and both piece ids. Entries expire after
+ * a time-to-live so a changed AI or config is picked up without a restart.
+ *
+ * Entries live in a {@link ClockTable}, packed with their expiry into one
+ * long, so expired slots are reused first and a torn or racing write reads
+ * back as a miss rather than another board's move.
+ */
+public final class MoveCache {
+    private final ClockTable table;
+    private final long ttlMillis;
+    private final LongPredicate expired = value -> (value >>> 16) < System.currentTimeMillis();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum entries, rounded up to a power of two (at least 4)
+     * @param ttlMillis how long an entry is served after it was stored
+     */
+    public MoveCache(int capacity, long ttlMillis) {
+        this.table = new ClockTable(capacity);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Canonical key for a request, or 0 when the board cannot be keyed
+     * (wider than {@link BitBoard#MAX_WIDTH} or cells smaller than its size).
+     */
+    public static long key(int width, int height, int[][] cells, int currentShape, int nextShape) {
+        if (width < 1 || width > BitBoard.MAX_WIDTH || height < 1 || cells == null || cells.length < height) {
+            return 0;
+        }
+        long key = BitBoard.sizeKey(width, height);
+        for (int y = 0; y < height; y++) {
+            int[] cellRow = cells[y];
+            if (cellRow == null || cellRow.length < width) return 0;
+            int row = 0;
+            for (int x = 0; x < width; x++) {
+                if (cellRow[x] != 0) row |= 1 << x;
+            }
+            key ^= BitBoard.rowKey(y, row);
+        }
+        // Row -1 never occurs on a board, so the pieces get their own key
+        key ^= BitBoard.rowKey(-1, (currentShape & 0xFF) << 8 | (nextShape & 0xFF));
+        return key == 0 ? 1 : key;
+    }
+
+    public int capacity() {
+        return table.capacity();
+    }
+
+    public long ttlMillis() {
+        return ttlMillis;
+    }
+
+    /** Cached move as {@code opX << 8 | opRotate}, or -1 when absent or expired. */
+    public int get(long key) {
+        long value = table.get(key, 0); // stored values carry an expiry, so never 0
+        if (value != 0) {
+            if (!expired.test(value)) {
+                hits.increment();
+                return (int) (value & 0xFFFF);
+            }
+            expirations.increment();
+        }
+        misses.increment();
+        return -1;
+    }
+
+    public void put(long key, int opX, int opRotate) {
+        // expiry millis << 16 | opX << 8 | opRotate
+        long value = (System.currentTimeMillis() + ttlMillis) << 16 | (opX & 0xFF) << 8 | (opRotate & 0xFF);
+        if (table.put(key, value, expired)) {
+            evictions.increment();
+        }
+    }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long expirations() { return expirations.sum(); }
+    public long evictions() { return evictions.sum(); }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        expirations.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MoveCache[capacity=%d, ttl=%ds, hits=%d, misses=%d, expired=%d, evicted=%d, hitRate=%.1f%%]",
+                capacity(), ttlMillis / 1000, hits(), misses(), expirations(), evictions(), hitRate() * 100);
+    }
+}
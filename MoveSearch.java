@@ -0,0 +1,548 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Placement search used by the AI: tries every rotation and column for a
+ * piece, drops it, and scores the resulting board.
+ *
+ * Candidates are scored without copying the board: the piece is applied to
+ * a {@link BoardFeatures} tracker, a feature vector is read off in
+ * O(width + height) and the placement is undone again.
+ *
+ * The parallel mode splits the candidate list across a ForkJoinPool. Each
+ * worker thread simulates on its own scratch state, and the reduction keeps
+ * the highest score with ties going to the lowest candidate index (rotation
+ * first, then x), so it returns exactly the move the serial search returns.
+ *
+ * The lookahead search scores placement sequences for several known pieces
+ * (current, next, ...). It is a beam search: at each depth only the best
+ * {@code beamWidth} boards by single-ply score are expanded, best first, and
+ * the search stops expanding at the deadline and returns the best move found.
+ * The first piece can be restricted to a {@link PathPlanner.Reachability}, so
+ * placements the piece cannot reach are never scored and tucks under
+ * overhangs are.
+ *
+ * The anytime variants widen the beam pass by pass (1, 2, 4, ... up to a
+ * cap) until a pass keeps every candidate, the cap is reached or the
+ * deadline passes. Each finished or interrupted pass can only add to the
+ * best-so-far move, so the caller always gets an answer by the deadline and
+ * a faster machine simply gets further.
+ *
+ * Each candidate's {@link FeatureVector} is extracted into per-thread
+ * scratch and scored by an {@link Evaluator}, the original hand-picked
+ * weights ({@link EvaluatorProfile#DEFAULT}) unless another is given.
+ *
+ * An optional {@link EvalCache} memoises evaluations of identical boards,
+ * which recur across symmetric rotations and between lookahead branches.
+ * Scores depend on the evaluator, so only share a cache between searches
+ * that use the same one.
+ * A candidate's key is derived from its parent's hash by rehashing only the
+ * rows the piece touches.
+ */
+public final class MoveSearch {
+    /** Below this many candidates forking costs more than it saves. */
+    public static final int PARALLEL_MIN_CANDIDATES = 48;
+    private static final int LEAF_CANDIDATES = 8;
+    /** Beam width that keeps every candidate, i.e. an exhaustive lookahead. */
+    public static final int FULL_BEAM = Integer.MAX_VALUE;
+
+    /** A placement: target column, landing row and number of clockwise rotations. */
+    public static final class Move {
+        public final int x;
+        public final int y;
+        public final int rotation;
+        public final double score;
+
+        public Move(int x, int y, int rotation, double score) {
+            this.x = x;
+            this.y = y;
+            this.rotation = rotation;
+            this.score = score;
+        }
+    }
+
+    // Per-thread simulation state, resized when the board size changes
+    private static final class Scratch {
+        final int[] tops = new int[BitBoard.MAX_WIDTH];
+        final int[] undo = new int[4];
+        final FeatureVector vector = new FeatureVector();
+        BoardFeatures features;
+
+        BoardFeatures featuresFor(BitBoard board) {
+            if (features == null || features.width() != board.width() || features.height() != board.height()) {
+                features = new BoardFeatures(board.width(), board.height());
+            }
+            features.rebuild(board);
+            vector.prepare(board);
+            return features;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> WORKER_SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final boolean parallel;
+    private final ForkJoinPool pool;
+    private final EvalCache cache; // may be null
+    private final Evaluator evaluator;
+    private final Scratch scratch = new Scratch();
+    // What the last beamSearch pass did, for the anytime loop
+    private boolean lastPassScoredLeaves;
+    private boolean lastPassTruncated;
+
+    /** Serial search. Instances are not thread-safe; give each AI player its own. */
+    public MoveSearch() {
+        this(false, null, null);
+    }
+
+    public MoveSearch(boolean parallel, ForkJoinPool pool, EvalCache cache) {
+        this(parallel, pool, cache, EvaluatorProfile.DEFAULT);
+    }
+
+    public MoveSearch(boolean parallel, ForkJoinPool pool, EvalCache cache, Evaluator evaluator) {
+        this.parallel = parallel;
+        this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+        this.cache = cache;
+        this.evaluator = evaluator;
+    }
+
+    public EvalCache getCache() {
+        return cache;
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /** Best placement of {@code piece} on {@code board}, or null when nothing fits. */
+    public Move findBestMove(BitBoard board, int piece) {
+        int candidates = 4 * board.width();
+
+        Candidate best;
+        if (parallel && candidates >= PARALLEL_MIN_CANDIDATES) {
+            best = pool.invoke(new SearchTask(board, piece, cache, evaluator, 0, candidates));
+        } else {
+            best = searchRange(board, piece, 0, candidates, scratch, cache, evaluator);
+        }
+        return best == null ? null : new Move(best.x, best.y, best.rotation, best.score);
+    }
+
+    /**
+     * Best placement of {@code piece} given that {@code nextPiece} follows, keeping
+     * the top {@code beamWidth} first placements and stopping at {@code deadlineNanos}
+     * ({@link System#nanoTime()} based).
+     */
+    public Move findBestMove(BitBoard board, int piece, int nextPiece, int beamWidth, long deadlineNanos) {
+        return findBestMove(board, new int[] {piece, nextPiece}, beamWidth, deadlineNanos);
+    }
+
+    /** Beam search over a known piece sequence; pieces[0] is the piece to place now. */
+    public Move findBestMove(BitBoard board, int[] pieces, int beamWidth, long deadlineNanos) {
+        if (pieces.length == 1) {
+            return findBestMove(board, pieces[0]);
+        }
+        return beamSearch(board, null, false, pieces, beamWidth, deadlineNanos);
+    }
+
+    /**
+     * Beam search where pieces[0] may only take one of the {@code reachable}
+     * placements, e.g. from {@link PathPlanner#reachable}. The returned move's
+     * y is the landing row to pass to {@link PathPlanner.Reachability#pathTo}.
+     */
+    public Move findBestMove(BitBoard board, PathPlanner.Reachability reachable, int[] pieces,
+                             int beamWidth, long deadlineNanos) {
+        return beamSearch(board, reachable, false, pieces, beamWidth, deadlineNanos);
+    }
+
+    /**
+     * Like the reachable search, but pieces[0] only takes placements it gets to
+     * by dropping straight down from as high as it can reach in that column and
+     * rotation ({@link PathPlanner.Reachability#dropRow}). Those are the moves a
+     * bare column and rotation, as in an OpMove, describe; tucks are skipped.
+     */
+    public Move findBestDrop(BitBoard board, PathPlanner.Reachability reachable, int[] pieces,
+                             int beamWidth, long deadlineNanos) {
+        return beamSearch(board, reachable, true, pieces, beamWidth, deadlineNanos);
+    }
+
+    /**
+     * Anytime form of the reachable search: iterative widening up to
+     * {@code maxBeam}, returning the best move found when the deadline passes.
+     */
+    public Move findBestMoveAnytime(BitBoard board, PathPlanner.Reachability reachable, int[] pieces,
+                                    int maxBeam, long deadlineNanos) {
+        return anytimeSearch(board, reachable, false, pieces, maxBeam, deadlineNanos);
+    }
+
+    /** Anytime form of {@link #findBestDrop}. */
+    public Move findBestDropAnytime(BitBoard board, PathPlanner.Reachability reachable, int[] pieces,
+                                    int maxBeam, long deadlineNanos) {
+        return anytimeSearch(board, reachable, true, pieces, maxBeam, deadlineNanos);
+    }
+
+    private Move anytimeSearch(BitBoard board, PathPlanner.Reachability reachable, boolean dropsOnly, int[] pieces,
+                               int maxBeam, long deadlineNanos) {
+        if (pieces.length == 1) {
+            return beamSearch(board, reachable, dropsOnly, pieces, maxBeam, deadlineNanos);
+        }
+        // Leaf scores from any pass are comparable; a 1-ply rank only stands in until one exists
+        Move best = null;
+        boolean bestScoredLeaves = false;
+        for (int beam = 1; ; beam = beam > maxBeam / 2 ? maxBeam : beam * 2) {
+            Move move = beamSearch(board, reachable, dropsOnly, pieces, Math.min(beam, maxBeam), deadlineNanos);
+            if (move == null) {
+                return best;
+            }
+            if (lastPassScoredLeaves) {
+                if (!bestScoredLeaves || move.score > best.score) {
+                    best = move;
+                    bestScoredLeaves = true;
+                }
+            } else if (best == null) {
+                best = move;
+            }
+            if (!lastPassTruncated || beam >= maxBeam || System.nanoTime() >= deadlineNanos) {
+                return best;
+            }
+        }
+    }
+
+    private Move beamSearch(BitBoard board, PathPlanner.Reachability reachable, boolean dropsOnly, int[] pieces,
+                            int beamWidth, long deadlineNanos) {
+        List<Node> beam = new ArrayList<>();
+        beam.add(Node.root(board.copyMasks()));
+        Move fallback = null;
+        lastPassScoredLeaves = false;
+        lastPassTruncated = false;
+
+        for (int depth = 0; depth < Math.max(1, pieces.length - 1); depth++) {
+            List<Node> children = new ArrayList<>();
+            for (Node node : beam) {
+                if (depth == 0 && reachable != null) {
+                    expandReachable(node, reachable, dropsOnly, children);
+                } else {
+                    expand(node, pieces[depth], children);
+                }
+                if (System.nanoTime() >= deadlineNanos) break;
+            }
+            if (children.isEmpty()) {
+                return fallback;
+            }
+
+            children.sort(Node.BEST_FIRST);
+            Node best = children.get(0);
+            fallback = new Move(best.rootX, best.rootY, best.rootRotation, best.rank);
+            if (pieces.length == 1 || System.nanoTime() >= deadlineNanos) {
+                return fallback;
+            }
+            lastPassTruncated |= children.size() > beamWidth;
+            beam = children.size() > beamWidth ? new ArrayList<>(children.subList(0, beamWidth)) : children;
+            for (Node node : beam) {
+                node.materialize();
+            }
+        }
+
+        Candidate leaf = parallel && beam.size() > 1
+                ? pool.invoke(new LeafTask(beam, pieces[pieces.length - 1], cache, evaluator, deadlineNanos, 0, beam.size()))
+                : bestLeaf(beam, pieces[pieces.length - 1], deadlineNanos, 0, beam.size(), scratch, cache, evaluator);
+        if (leaf == null) {
+            return fallback;
+        }
+        lastPassScoredLeaves = true;
+        Node root = beam.get(leaf.index / (4 * board.width()));
+        return new Move(root.rootX, root.rootY, root.rootRotation, leaf.score);
+    }
+
+    // Every placement of piece on node's board as a child node; boards are built
+    // later, and only for the children that survive the beam cut
+    private void expand(Node node, int piece, List<Node> out) {
+        BitBoard parent = node.board;
+        int width = parent.width();
+        BoardFeatures features = scratch.featuresFor(parent);
+        long baseKey = cache != null ? parent.hash64() : 0;
+        parent.columnTops(scratch.tops);
+
+        for (int index = 0; index < 4 * width; index++) {
+            int rotation = index / width;
+            int x = index % width;
+            PieceTable.Orientation orientation = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+            if (x + orientation.width > width) continue;
+
+            int y = findLowestPosition(parent, orientation, x, scratch.tops);
+            if (y < 0) continue;
+
+            addChild(node, features, baseKey, orientation, x, y, out);
+        }
+    }
+
+    // Root children restricted to the placements the falling piece can reach
+    private void expandReachable(Node node, PathPlanner.Reachability reachable, boolean dropsOnly, List<Node> out) {
+        BitBoard parent = node.board;
+        BoardFeatures features = scratch.featuresFor(parent);
+        long baseKey = cache != null ? parent.hash64() : 0;
+
+        for (int i = 0; i < reachable.count(); i++) {
+            PieceTable.Orientation orientation = TetrisEngine.PIECE_TABLE.get(reachable.piece(), reachable.rotation(i));
+            int x = reachable.x(i);
+            int y = reachable.y(i);
+            if (y < 0) continue; // resting above the board would lock out
+            if (dropsOnly && y != reachable.dropRow(x, orientation.rotation)) continue;
+            addChild(node, features, baseKey, orientation, x, y, out);
+        }
+    }
+
+    private void addChild(Node node, BoardFeatures features, long baseKey,
+                          PieceTable.Orientation orientation, int x, int y, List<Node> out) {
+        features.place(orientation, x, y, scratch.undo);
+        int lines = features.fullRows();
+        features.remove(orientation, x, y, scratch.undo);
+        double rank = node.lineBonus + evaluate(node.board, baseKey, scratch, orientation, x, y, cache, evaluator);
+        boolean first = node.parent == null;
+        out.add(new Node(node, orientation, x, y,
+                first ? x : node.rootX, first ? y : node.rootY, first ? orientation.rotation : node.rootRotation,
+                node.lineBonus + evaluator.lineClearBonus(lines), rank, out.size()));
+    }
+
+    // Best final placement across beam[from, to); index = node * 4 * width + candidate
+    private static Candidate bestLeaf(List<Node> beam, int piece, long deadlineNanos, int from, int to,
+                                      Scratch scratch, EvalCache cache, Evaluator evaluator) {
+        Candidate best = null;
+        for (int n = from; n < to; n++) {
+            Node node = beam.get(n);
+            int candidates = 4 * node.board.width();
+            Candidate leaf = searchRange(node.board, piece, 0, candidates, scratch, cache, evaluator);
+            if (leaf != null) {
+                best = Candidate.better(best, new Candidate(n * candidates + leaf.index, leaf.x, leaf.y,
+                        leaf.rotation, node.lineBonus + leaf.score));
+            }
+            if (System.nanoTime() >= deadlineNanos) break;
+        }
+        return best;
+    }
+
+    // Candidate index = rotation * width + x, i.e. the serial loop order
+    private static Candidate searchRange(BitBoard board, int piece, int from, int to,
+                                         Scratch scratch, EvalCache cache, Evaluator evaluator) {
+        int width = board.width();
+        scratch.featuresFor(board);
+        long baseKey = cache != null ? board.hash64() : 0;
+        board.columnTops(scratch.tops);
+        Candidate best = null;
+
+        for (int index = from; index < to; index++) {
+            int rotation = index / width;
+            int x = index % width;
+            PieceTable.Orientation orientation = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+            if (x + orientation.width > width) continue;
+
+            int y = findLowestPosition(board, orientation, x, scratch.tops);
+            if (y < 0) continue;
+
+            double score = evaluate(board, baseKey, scratch, orientation, x, y, cache, evaluator);
+            if (best == null || score > best.score) {
+                best = new Candidate(index, x, y, rotation, score);
+            }
+        }
+        return best;
+    }
+
+    // Landing row from the column tops and the piece's bottom profile: the piece
+    // first touches down where some column's lowest cell meets that column's top.
+    // Falls back to a top-down scan when the piece would already overlap at y = 0.
+    static int findLowestPosition(BitBoard board, PieceTable.Orientation piece, int x, int[] tops) {
+        int firstBlocked = Integer.MAX_VALUE;
+        for (int c = 0; c < piece.width; c++) {
+            firstBlocked = Math.min(firstBlocked, tops[x + c] - piece.bottom[c]);
+        }
+        if (firstBlocked >= 0) {
+            return firstBlocked - 1;
+        }
+        for (int y = 0; y < board.height(); y++) {
+            if (board.collides(piece.rowMasks, piece.width, x, y)) {
+                return y - 1; // Return the last valid position
+            }
+        }
+        return board.height() - 1; // If piece can go all the way down
+    }
+
+    // Score of board with piece placed at (x, y); scratch.features must describe board
+    private static double evaluate(BitBoard board, long baseKey, Scratch scratch,
+                                   PieceTable.Orientation piece, int x, int y, EvalCache cache, Evaluator evaluator) {
+        if (cache == null) {
+            return evaluatePlacement(board, scratch, piece, x, y, evaluator);
+        }
+        long key = placementKey(board, baseKey, piece, x, y);
+        double score = cache.get(key);
+        if (Double.isNaN(score)) {
+            score = evaluatePlacement(board, scratch, piece, x, y, evaluator);
+            cache.put(key, score);
+        }
+        return score;
+    }
+
+    private static double evaluatePlacement(BitBoard board, Scratch scratch, PieceTable.Orientation piece,
+                                            int x, int y, Evaluator evaluator) {
+        BoardFeatures features = scratch.features;
+        features.place(piece, x, y, scratch.undo);
+        scratch.vector.extract(board, features, piece, x, y, evaluator.requiredFeatures());
+        features.remove(piece, x, y, scratch.undo);
+        return evaluator.score(scratch.vector);
+    }
+
+    // hash64() of the board after the placement, updated from the parent's hash row by row
+    private static long placementKey(BitBoard board, long baseKey, PieceTable.Orientation piece, int x, int y) {
+        long key = baseKey;
+        for (int py = 0; py < piece.rowMasks.length; py++) {
+            int boardY = y + py;
+            if (boardY < 0 || boardY >= board.height()) continue;
+            int before = board.row(boardY);
+            int after = before | ((piece.rowMasks[py] << x) & board.fullRowMask());
+            key ^= BitBoard.rowKey(boardY, before) ^ BitBoard.rowKey(boardY, after);
+        }
+        return key;
+    }
+
+    private static final class Candidate {
+        final int index;
+        final int x;
+        final int y;
+        final int rotation;
+        final double score;
+
+        Candidate(int index, int x, int y, int rotation, double score) {
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.rotation = rotation;
+            this.score = score;
+        }
+
+        // Deterministic reduction: higher score wins, ties go to the earlier candidate
+        static Candidate better(Candidate a, Candidate b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            if (b.score > a.score || (b.score == a.score && b.index < a.index)) return b;
+            return a;
+        }
+    }
+
+    private static final class SearchTask extends RecursiveTask<Candidate> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitBoard board;
+        private final int piece;
+        private final EvalCache cache;
+        private final Evaluator evaluator;
+        private final int from;
+        private final int to;
+
+        SearchTask(BitBoard board, int piece, EvalCache cache, Evaluator evaluator, int from, int to) {
+            this.board = board;
+            this.piece = piece;
+            this.cache = cache;
+            this.evaluator = evaluator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidate compute() {
+            if (to - from <= LEAF_CANDIDATES) {
+                return searchRange(board, piece, from, to, WORKER_SCRATCH.get(), cache, evaluator);
+            }
+            int mid = (from + to) >>> 1;
+            SearchTask left = new SearchTask(board, piece, cache, evaluator, from, mid);
+            left.fork();
+            Candidate right = new SearchTask(board, piece, cache, evaluator, mid, to).compute();
+            return Candidate.better(left.join(), right);
+        }
+    }
+
+    // A board in the lookahead beam and the first move that led to it. Children
+    // are ranked before their board exists; materialize() builds it on demand.
+    private static final class Node {
+        static final Comparator<Node> BEST_FIRST = (a, b) ->
+                a.rank != b.rank ? Double.compare(b.rank, a.rank) : Integer.compare(a.order, b.order);
+
+        BitBoard board;
+        final Node parent;
+        final PieceTable.Orientation piece;
+        final int x;
+        final int y;
+        final int rootX;
+        final int rootY;
+        final int rootRotation;
+        final double lineBonus; // line-clear reward banked by this and earlier placements
+        final double rank;      // single-ply score used to order and prune the beam
+        final int order;
+
+        static Node root(BitBoard board) {
+            Node root = new Node(null, null, -1, -1, -1, -1, -1, 0, 0, 0);
+            root.board = board;
+            return root;
+        }
+
+        Node(Node parent, PieceTable.Orientation piece, int x, int y, int rootX, int rootY, int rootRotation,
+             double lineBonus, double rank, int order) {
+            this.parent = parent;
+            this.piece = piece;
+            this.x = x;
+            this.y = y;
+            this.rootX = rootX;
+            this.rootY = rootY;
+            this.rootRotation = rootRotation;
+            this.lineBonus = lineBonus;
+            this.rank = rank;
+            this.order = order;
+        }
+
+        // Parent board plus this placement, cleared of full rows
+        void materialize() {
+            if (board != null) return;
+            board = parent.board.copyMasks();
+            board.place(piece.rowMasks, x, y, 1);
+            board.clearFullRows();
+        }
+    }
+
+    private static final class LeafTask extends RecursiveTask<Candidate> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node> beam;
+        private final int piece;
+        private final EvalCache cache;
+        private final Evaluator evaluator;
+        private final long deadlineNanos;
+        private final int from;
+        private final int to;
+
+        LeafTask(List<Node> beam, int piece, EvalCache cache, Evaluator evaluator, long deadlineNanos,
+                 int from, int to) {
+            this.beam = beam;
+            this.piece = piece;
+            this.cache = cache;
+            this.evaluator = evaluator;
+            this.deadlineNanos = deadlineNanos;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidate compute() {
+            if (to - from <= 1) {
+                return bestLeaf(beam, piece, deadlineNanos, from, to, WORKER_SCRATCH.get(), cache, evaluator);
+            }
+            int mid = (from + to) >>> 1;
+            LeafTask left = new LeafTask(beam, piece, cache, evaluator, deadlineNanos, from, mid);
+            left.fork();
+            Candidate right = new LeafTask(beam, piece, cache, evaluator, deadlineNanos, mid, to).compute();
+            return Candidate.better(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds every placement a falling piece can actually reach, and the shortest
+ * input sequence that gets it there.
+ *
+ * This is a breadth-first search over (x, y, rotation) states using LEFT,
+ * RIGHT, SOFT_DROP and ROTATE, where ROTATE kicks exactly like
+ * {@link TetrisEngine#rotationKick}. Every state that cannot fall further is
+ * a placement, so slides and spins under overhangs are found as well as
+ * straight drops. A path ends with HARD_DROP, taken from the highest state
+ * in the column that falls straight onto the target.
+ *
+ * Gravity is not modelled. Callers that execute a path over several ticks
+ * plan again from the piece's current state once it has fallen. Results are
+ * cached per board, piece and start state. Not thread-safe.
+ */
+public final class PathPlanner {
+    private static final TetrisEngine.Input[] MOVES = {
+        TetrisEngine.Input.LEFT, TetrisEngine.Input.RIGHT, TetrisEngine.Input.ROTATE, TetrisEngine.Input.SOFT_DROP
+    };
+
+    private final int cacheSize;
+    private final Map<Long, Reachability> cache;
+
+    public PathPlanner(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<Long, Reachability>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Reachability> eldest) {
+                return size() > PathPlanner.this.cacheSize;
+            }
+        };
+    }
+
+    /** Placements reachable by {@code piece} starting at (x, y, rotation) on {@code board}. */
+    public Reachability reachable(BitBoard board, int piece, int x, int y, int rotation) {
+        rotation &= 3;
+        long key = board.hash64();
+        key = key * 31 + piece;
+        key = key * 31 + rotation;
+        key = key * 31 + x;
+        key = key * 31 + y;
+
+        Reachability result = cache.get(key);
+        if (result == null || !result.matches(board, piece, x, y, rotation)) {
+            result = new Reachability(board.copyMasks(), piece, x, y, rotation);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /** The outcome of one search: reachable placements and the paths to them. */
+    public static final class Reachability {
+        private final BitBoard board; // mask copy, also used to verify cache hits
+        private final int piece;
+        private final int startX;
+        private final int startY;
+        private final int startRotation;
+        private final int width;
+        private final int minY;       // lowest y a state can have (the start row when above the board)
+        private final int rows;
+        private final int[] dist;     // inputs from the start, -1 when unreached
+        private final int[] parent;
+        private final byte[] via;     // ordinal of the input that reached the state
+        private final int[] placements; // resting states in (rotation, x, y) order
+        private final int count;
+
+        Reachability(BitBoard board, int piece, int startX, int startY, int startRotation) {
+            this.board = board;
+            this.piece = piece;
+            this.startX = startX;
+            this.startY = startY;
+            this.startRotation = startRotation;
+            this.width = board.width();
+            this.minY = Math.min(0, startY);
+            this.rows = board.height() - minY;
+
+            int states = 4 * rows * width;
+            dist = new int[states];
+            parent = new int[states];
+            via = new byte[states];
+            Arrays.fill(dist, -1);
+
+            int[] resting = new int[states];
+            int found = 0;
+            if (fits(startX, startY, startRotation)) {
+                int[] queue = new int[states];
+                int head = 0;
+                int tail = 0;
+                int start = index(startX, startY, startRotation);
+                dist[start] = 0;
+                parent[start] = -1;
+                queue[tail++] = start;
+
+                while (head < tail) {
+                    int state = queue[head++];
+                    int x = state % width;
+                    int y = (state / width) % rows + minY;
+                    int rotation = state / (width * rows);
+
+                    for (TetrisEngine.Input move : MOVES) {
+                        int nx = x;
+                        int ny = y;
+                        int nr = rotation;
+                        switch (move) {
+                            case LEFT: nx--; break;
+                            case RIGHT: nx++; break;
+                            case SOFT_DROP: ny++; break;
+                            case ROTATE:
+                                nr = (rotation + 1) & 3;
+                                int dx = TetrisEngine.rotationKick(board, piece, nr, x, y);
+                                if (dx == TetrisEngine.NO_KICK) continue;
+                                nx += dx;
+                                break;
+                            default:
+                                continue;
+                        }
+                        if (!fits(nx, ny, nr)) continue;
+                        int next = index(nx, ny, nr);
+                        if (dist[next] >= 0) continue;
+                        dist[next] = dist[state] + 1;
+                        parent[next] = state;
+                        via[next] = (byte) move.ordinal();
+                        queue[tail++] = next;
+                    }
+                }
+
+                // Candidate order matches MoveSearch: rotation, then x, then top to bottom
+                for (int rotation = 0; rotation < 4; rotation++) {
+                    for (int x = 0; x < width; x++) {
+                        for (int y = minY; y < board.height(); y++) {
+                            int state = index(x, y, rotation);
+                            if (dist[state] >= 0 && !fits(x, y + 1, rotation)) {
+                                resting[found++] = state;
+                            }
+                        }
+                    }
+                }
+            }
+            placements = Arrays.copyOf(resting, found);
+            count = found;
+        }
+
+        /** Number of reachable placements. */
+        public int count() { return count; }
+        public int x(int i) { return placements[i] % width; }
+        public int y(int i) { return (placements[i] / width) % rows + minY; }
+        public int rotation(int i) { return placements[i] / (width * rows); }
+        public int piece() { return piece; }
+
+        /** True when the piece can come to rest at (x, y, rotation). */
+        public boolean canReach(int x, int y, int rotation) {
+            rotation &= 3;
+            return inRange(x, y) && dist[index(x, y, rotation)] >= 0 && !fits(x, y + 1, rotation);
+        }
+
+        /**
+         * Row where the piece lands when dropped straight down in this column from
+         * as high as it can get, or -1 when that column/rotation is unreachable.
+         */
+        public int dropRow(int x, int rotation) {
+            rotation &= 3;
+            if (x < 0 || x >= width) return -1;
+            for (int y = minY; y < board.height(); y++) {
+                if (dist[index(x, y, rotation)] >= 0) {
+                    while (fits(x, y + 1, rotation)) y++;
+                    return y;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Fewest inputs from the start state that lock the piece at (x, y, rotation),
+         * ending with HARD_DROP, or null when that placement is unreachable.
+         */
+        public TetrisEngine.Input[] pathTo(int x, int y, int rotation) {
+            if (!canReach(x, y, rotation)) return null;
+            rotation &= 3;
+
+            // Hard drop from whichever reached state above the target falls onto it cheapest
+            int launch = -1;
+            for (int above = y; above >= minY && fits(x, above, rotation); above--) {
+                int state = index(x, above, rotation);
+                if (dist[state] >= 0 && (launch < 0 || dist[state] <= dist[launch])) {
+                    launch = state;
+                }
+            }
+
+            TetrisEngine.Input[] path = new TetrisEngine.Input[dist[launch] + 1];
+            path[path.length - 1] = TetrisEngine.Input.HARD_DROP;
+            for (int state = launch, i = path.length - 2; parent[state] >= 0; state = parent[state], i--) {
+                path[i] = TetrisEngine.Input.values()[via[state]];
+            }
+            return path;
+        }
+
+        boolean matches(BitBoard other, int piece, int x, int y, int rotation) {
+            return this.piece == piece && startX == x && startY == y && startRotation == rotation
+                    && board.sameMasks(other);
+        }
+
+        private boolean fits(int x, int y, int rotation) {
+            if (y < minY) return false;
+            PieceTable.Orientation orientation = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+            return !board.collides(orientation.rowMasks, orientation.width, x, y);
+        }
+
+        private boolean inRange(int x, int y) {
+            return x >= 0 && x < width && y >= minY && y < board.height();
+        }
+
+        private int index(int x, int y, int rotation) {
+            return (rotation * rows + (y - minY)) * width + x;
+        }
+    }
+}
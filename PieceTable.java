@@ -0,0 +1,84 @@
+/**
+ * Immutable table of every piece orientation, built once from the piece
+ * shapes. Rotation r is the shape turned clockwise r times, exactly as the
+ * game has always rotated pieces, so movement, collision, rendering and the
+ * AI can all read precomputed data instead of allocating rotated arrays.
+ */
+public final class PieceTable {
+
+    /** One rotation of one piece. Arrays are shared; callers must not modify them. */
+    public static final class Orientation {
+        public final int piece;
+        public final int rotation;
+        public final int width;
+        public final int height;
+        public final int[] cellX;    // x offset of each filled cell
+        public final int[] cellY;    // y offset of each filled cell
+        public final int[] rowMasks; // bit px of rowMasks[py] set when (px, py) is filled
+        public final int[] bottom;   // per column: y offset of the lowest filled cell
+
+        private Orientation(int piece, int rotation, int[][] shape) {
+            this.piece = piece;
+            this.rotation = rotation;
+            this.height = shape.length;
+            this.width = shape[0].length;
+            this.rowMasks = new int[height];
+            this.bottom = new int[width];
+
+            int cells = 0;
+            for (int[] row : shape) {
+                for (int cell : row) {
+                    if (cell == 1) cells++;
+                }
+            }
+            this.cellX = new int[cells];
+            this.cellY = new int[cells];
+
+            int i = 0;
+            for (int py = 0; py < height; py++) {
+                for (int px = 0; px < width; px++) {
+                    if (shape[py][px] == 1) {
+                        cellX[i] = px;
+                        cellY[i] = py;
+                        i++;
+                        rowMasks[py] |= 1 << px;
+                        bottom[px] = py;
+                    }
+                }
+            }
+        }
+    }
+
+    private final Orientation[][] orientations;
+
+    public PieceTable(int[][][] shapes) {
+        orientations = new Orientation[shapes.length][4];
+        for (int piece = 0; piece < shapes.length; piece++) {
+            int[][] shape = shapes[piece];
+            for (int rotation = 0; rotation < 4; rotation++) {
+                orientations[piece][rotation] = new Orientation(piece, rotation, shape);
+                shape = rotateClockwise(shape);
+            }
+        }
+    }
+
+    public Orientation get(int piece, int rotation) {
+        return orientations[piece][rotation & 3];
+    }
+
+    public int pieceCount() {
+        return orientations.length;
+    }
+
+    private static int[][] rotateClockwise(int[][] shape) {
+        int rows = shape.length;
+        int cols = shape[0].length;
+        int[][] rotated = new int[cols][rows];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                rotated[x][rows - 1 - y] = shape[y][x];
+            }
+        }
+        return rotated;
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-check for {@link BinaryProtocol} and the server session, for running
+ * after protocol changes. Prints each failure and exits with status 1 if any
+ * check failed.
+ *
+ * <ol>
+ *   <li>Every frame type decodes to what was encoded: move requests and
+ *       session syncs of every width up to 40, batches, deltas and replies.</li>
+ *   <li>Seeded AI games are replayed onto a server-side copy of the board one
+ *       session delta at a time (0 to 8 placements each, line clears
+ *       included); after every delta the copy must accept the checksum and
+ *       match the client's board. Deltas with a wrong checksum, wrong cleared
+ *       rows or an overlapping piece must be rejected.</li>
+ *   <li>Against an in-process SimpleTetrisServer, a client whose reported
+ *       placements disagree with its board is asked to resync and still gets
+ *       its move; a sync too wide for a session gets a move and a later delta
+ *       a resync, on the same connection.</li>
+ * </ol>
+ *
+ * Usage: java -cp ".;lib/gson-2.10.1.jar" ProtocolCheck [games] [seed]
+ * Defaults: 20 games from seed 1.
+ */
+public class ProtocolCheck {
+    private static final int PORT = 3200;
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+    private static final int MAX_PIECES_PER_GAME = 500;
+    private static final int O_PIECE = 1;
+
+    private static int checks;
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        checkRoundTrips(new Random(seed));
+        checkSessionReplay(games, new Random(seed));
+        checkRejectedDeltas();
+        checkServerResync();
+
+        if (failures > 0) {
+            System.out.println("❌ " + failures + " of " + checks + " protocol checks failed");
+            System.exit(1);
+        }
+        System.out.println("✅ " + checks + " protocol checks passed");
+    }
+
+    private static void check(boolean ok, String what) {
+        checks++;
+        if (!ok) {
+            failures++;
+            System.out.println("❌ " + what);
+        }
+    }
+
+    private static void checkRoundTrips(Random random) {
+        int seq = 1;
+        for (int width = 1; width <= 40; width++) {
+            for (int height : new int[] {1, 7, 20, 40}) {
+                int[][] cells = randomCells(random, width, height);
+                int current = random.nextInt(7);
+                int next = random.nextInt(7);
+                boolean sync = (width + height) % 2 == 0;
+                byte[] frame = sync
+                        ? BinaryProtocol.encodeSessionSync(seq, width, height, cells, current, next)
+                        : BinaryProtocol.encodeMoveRequest(seq, width, height, cells, current, next);
+                BinaryProtocol.MoveRequest decoded = BinaryProtocol.decodeMoveRequest(payload(frame));
+                check(frame[4] == (sync ? BinaryProtocol.SESSION_SYNC : BinaryProtocol.MOVE_REQUEST)
+                                && decoded.seq == seq && decoded.width == width && decoded.height == height
+                                && decoded.currentShape == current && decoded.nextShape == next
+                                && Arrays.deepEquals(decoded.cells, occupancy(cells)),
+                        (sync ? "session sync " : "move request ") + width + "x" + height + " round trip");
+                seq++;
+            }
+        }
+
+        List<BinaryProtocol.MoveRequest> boards = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(40);
+            boards.add(new BinaryProtocol.MoveRequest(0, width, height, randomCells(random, width, height),
+                    random.nextInt(7), random.nextInt(7)));
+        }
+        BinaryProtocol.MoveRequest[] decodedBoards =
+                BinaryProtocol.decodeBatchRequest(payload(BinaryProtocol.encodeBatchRequest(seq, boards)));
+        boolean same = decodedBoards.length == boards.size();
+        for (int i = 0; same && i < decodedBoards.length; i++) {
+            BinaryProtocol.MoveRequest board = boards.get(i);
+            same = decodedBoards[i].width == board.width && decodedBoards[i].height == board.height
+                    && decodedBoards[i].currentShape == board.currentShape
+                    && decodedBoards[i].nextShape == board.nextShape
+                    && Arrays.deepEquals(decodedBoards[i].cells, occupancy(board.cells));
+        }
+        check(same, "batch request round trip");
+
+        int[] moves = new int[2 * 300];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = random.nextInt(256);
+        }
+        byte[] batchReply = payload(BinaryProtocol.encodeBatchReply(seq, moves));
+        check(BinaryProtocol.replySeq(batchReply) == seq
+                        && Arrays.equals(BinaryProtocol.decodeBatchReply(batchReply), moves),
+                "batch reply round trip");
+        check(Arrays.equals(BinaryProtocol.decodeMoveReply(payload(BinaryProtocol.encodeMoveReply(seq, 17, 3))),
+                new int[] {seq, 17, 3}), "move reply round trip");
+        byte[] resync = payload(BinaryProtocol.encodeResyncReply(seq));
+        check(resync[0] == BinaryProtocol.RESYNC_REPLY && BinaryProtocol.replySeq(resync) == seq,
+                "resync reply round trip");
+
+        List<BinaryProtocol.Placement> placements = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            placements.add(new BinaryProtocol.Placement(random.nextInt(7), random.nextInt(4), random.nextInt(10),
+                    random.nextInt(20), i % 3 == 0 ? new int[] {16, 17, 19} : new int[0]));
+        }
+        int checksum = random.nextInt();
+        BinaryProtocol.SessionDelta delta = BinaryProtocol.decodeSessionDelta(
+                payload(BinaryProtocol.encodeSessionDelta(seq, placements, 4, 6, checksum)));
+        same = delta.seq == seq && delta.currentShape == 4 && delta.nextShape == 6 && delta.checksum == checksum
+                && delta.placements.length == placements.size();
+        for (int i = 0; same && i < delta.placements.length; i++) {
+            BinaryProtocol.Placement sent = placements.get(i);
+            BinaryProtocol.Placement got = delta.placements[i];
+            same = got.piece == sent.piece && got.rotation == sent.rotation && got.x == sent.x && got.y == sent.y
+                    && Arrays.equals(got.clearedRows, sent.clearedRows);
+        }
+        check(same, "session delta round trip");
+    }
+
+    // The client plays greedy AI moves; the server's copy only ever sees the sync and the deltas
+    private static void checkSessionReplay(int games, Random random) {
+        MoveSearch search = new MoveSearch();
+        int seq = 1;
+        int deltas = 0;
+        int lines = 0;
+        for (int game = 0; game < games; game++) {
+            BitBoard client = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+            BinaryProtocol.MoveRequest sync = BinaryProtocol.decodeMoveRequest(payload(
+                    BinaryProtocol.encodeSessionSync(seq++, BOARD_WIDTH, BOARD_HEIGHT, client.cells(), 0, 0)));
+            BitBoard server = BitBoard.fromCells(sync.cells, sync.width, sync.height);
+
+            List<BinaryProtocol.Placement> pending = new ArrayList<>();
+            int batch = random.nextInt(9);
+            for (int placed = 0; placed < MAX_PIECES_PER_GAME; placed++) {
+                int piece = random.nextInt(7);
+                MoveSearch.Move move = search.findBestMove(client, piece);
+                if (move == null) break;
+                PieceTable.Orientation shape = TetrisEngine.PIECE_TABLE.get(piece, move.rotation);
+                client.place(shape.rowMasks, move.x, move.y, piece + 1);
+                int[] clearedRows = client.fullRowIndices();
+                client.clearFullRows();
+                lines += clearedRows.length;
+                pending.add(new BinaryProtocol.Placement(piece, move.rotation, move.x, move.y, clearedRows));
+
+                if (pending.size() >= batch) {
+                    BinaryProtocol.SessionDelta delta = BinaryProtocol.decodeSessionDelta(payload(
+                            BinaryProtocol.encodeSessionDelta(seq++, pending, piece, 0,
+                                    BinaryProtocol.checksum(client))));
+                    boolean applied = BinaryProtocol.applySessionDelta(server, delta);
+                    check(applied && server.sameMasks(client),
+                            "game " + game + ": delta of " + pending.size() + " placements after piece " + placed
+                                    + (applied ? " left the server board different" : " was rejected"));
+                    if (!applied) break;
+                    deltas++;
+                    pending.clear();
+                    batch = random.nextInt(9);
+                }
+            }
+        }
+        check(lines > 0, "session replay cleared no lines, so cleared-row deltas went untested");
+        System.out.println("🔄 Replayed " + games + " games as " + deltas + " session deltas, " + lines + " lines");
+    }
+
+    private static void checkRejectedDeltas() {
+        PieceTable.Orientation square = TetrisEngine.PIECE_TABLE.get(O_PIECE, 0);
+        BitBoard expected = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+        expected.place(square.rowMasks, 0, BOARD_HEIGHT - 2, O_PIECE + 1);
+        List<BinaryProtocol.Placement> placements = new ArrayList<>();
+        placements.add(new BinaryProtocol.Placement(O_PIECE, 0, 0, BOARD_HEIGHT - 2, new int[0]));
+        int checksum = BinaryProtocol.checksum(expected);
+
+        check(BinaryProtocol.applySessionDelta(new BitBoard(BOARD_WIDTH, BOARD_HEIGHT), delta(placements, checksum)),
+                "a matching delta was rejected");
+        check(!BinaryProtocol.applySessionDelta(new BitBoard(BOARD_WIDTH, BOARD_HEIGHT),
+                delta(placements, checksum + 1)), "a delta with the wrong checksum was accepted");
+        check(!BinaryProtocol.applySessionDelta(expected.copyMasks(), delta(placements, checksum)),
+                "a delta placing a piece over locked cells was accepted");
+
+        List<BinaryProtocol.Placement> wrongRows = new ArrayList<>();
+        wrongRows.add(new BinaryProtocol.Placement(O_PIECE, 0, 0, BOARD_HEIGHT - 2, new int[] {BOARD_HEIGHT - 1}));
+        check(!BinaryProtocol.applySessionDelta(new BitBoard(BOARD_WIDTH, BOARD_HEIGHT), delta(wrongRows, checksum)),
+                "a delta claiming a row it did not clear was accepted");
+    }
+
+    private static BinaryProtocol.SessionDelta delta(List<BinaryProtocol.Placement> placements, int checksum) {
+        return BinaryProtocol.decodeSessionDelta(payload(
+                BinaryProtocol.encodeSessionDelta(1, placements, 0, 0, checksum)));
+    }
+
+    private static void checkServerResync() throws Exception {
+        SimpleTetrisServer server = new SimpleTetrisServer(PORT, 2);
+        server.setVerbose(false);
+        server.setMoveCache(null);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("❌ Check server failed: " + e.getMessage());
+            }
+        }, "protocol-check-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(200);
+
+        TetrisServer client = new TetrisServer("localhost", PORT, true);
+        try {
+            check(client.connect() && client.getProtocol().equals("binary"), "client did not negotiate binary");
+            client.setVerbose(false);
+            BitBoard board = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+            check(ask(client, board) != null, "no move for the session sync");
+
+            // A placement the client really made goes out as a delta the server accepts
+            PieceTable.Orientation square = TetrisEngine.PIECE_TABLE.get(O_PIECE, 0);
+            board.place(square.rowMasks, 0, BOARD_HEIGHT - 2, O_PIECE + 1);
+            client.notePlacement(O_PIECE, 0, 0, BOARD_HEIGHT - 2, new int[0]);
+            check(ask(client, board) != null && client.getResyncCount() == 0, "a consistent delta was not accepted");
+
+            // One it only claims to have made leaves the server's board different: resync, then the move
+            client.notePlacement(O_PIECE, 0, 4, BOARD_HEIGHT - 2, new int[0]);
+            check(ask(client, board) != null && client.getResyncCount() == 1,
+                    "a diverged session did not resync (" + client.getResyncCount() + " resyncs)");
+
+            board.place(square.rowMasks, 2, BOARD_HEIGHT - 2, O_PIECE + 1);
+            client.notePlacement(O_PIECE, 0, 2, BOARD_HEIGHT - 2, new int[0]);
+            check(ask(client, board) != null && client.getResyncCount() == 1,
+                    "the session did not continue after a resync");
+        } finally {
+            client.disconnect();
+        }
+
+        checkWideSync();
+        server.stop();
+    }
+
+    private static TetrisServer.OpMove ask(TetrisServer client, BitBoard board) {
+        return client.getOptimalMove(new TetrisServer.PurGame(BOARD_WIDTH, BOARD_HEIGHT, board.cells(), 2, 5));
+    }
+
+    // The TetrisServer client never syncs a board this wide, so speak the protocol directly
+    private static void checkWideSync() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.write((BinaryProtocol.HELLO + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            StringBuilder answer = new StringBuilder();
+            for (int b; (b = in.read()) != '\n' && b >= 0; ) {
+                answer.append((char) b);
+            }
+            check(answer.toString().equals(BinaryProtocol.OK_BINARY), "server did not accept binary: " + answer);
+
+            int width = BitBoard.MAX_WIDTH + 9;
+            out.write(BinaryProtocol.encodeSessionSync(1, width, BOARD_HEIGHT, new int[BOARD_HEIGHT][width], 2, 5));
+            out.flush();
+            byte[] reply = readFrame(in);
+            check(reply[0] == BinaryProtocol.MOVE_REPLY && BinaryProtocol.replySeq(reply) == 1,
+                    "no move for a " + width + "-wide session sync");
+
+            out.write(BinaryProtocol.encodeSessionDelta(2, new ArrayList<>(), 2, 5, 0));
+            out.flush();
+            reply = readFrame(in);
+            check(reply[0] == BinaryProtocol.RESYNC_REPLY && BinaryProtocol.replySeq(reply) == 2,
+                    "a delta after a too-wide sync was not answered with a resync");
+
+            out.write(BinaryProtocol.encodeMoveRequest(3, BOARD_WIDTH, BOARD_HEIGHT,
+                    new int[BOARD_HEIGHT][BOARD_WIDTH], 2, 5));
+            out.flush();
+            reply = readFrame(in);
+            check(reply[0] == BinaryProtocol.MOVE_REPLY && BinaryProtocol.replySeq(reply) == 3,
+                    "the connection did not keep serving after a too-wide sync");
+        } catch (IOException e) {
+            check(false, "too-wide sync: " + e.getMessage());
+        }
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return payload;
+    }
+
+    // Frame minus its length prefix, after checking the prefix
+    private static byte[] payload(byte[] frame) {
+        int length = ByteBuffer.wrap(frame).getInt();
+        check(length == frame.length - 4, "length prefix " + length + " on a " + frame.length + "-byte frame");
+        return Arrays.copyOfRange(frame, 4, frame.length);
+    }
+
+    private static int[][] randomCells(Random random, int width, int height) {
+        int[][] cells = new int[height][width];
+        for (int[] row : cells) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt(3) == 0 ? 1 + random.nextInt(7) : 0;
+            }
+        }
+        return cells;
+    }
+
+    private static int[][] occupancy(int[][] cells) {
+        int[][] bits = new int[cells.length][];
+        for (int y = 0; y < cells.length; y++) {
+            bits[y] = new int[cells[y].length];
+            for (int x = 0; x < cells[y].length; x++) {
+                bits[y][x] = cells[y][x] != 0 ? 1 : 0;
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,123 @@
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Active rendering: a daemon thread that produces a frame at a fixed target
+ * rate instead of waiting for Swing to coalesce repaint() calls.
+ *
+ * Painting belongs to the event dispatch thread, so each frame runs there
+ * through {@link EventQueue#invokeAndWait}; the loop thread only owns the
+ * timing. After a frame it sleeps for what is left of the frame budget,
+ * parking until shortly before the deadline and yielding the rest so frames
+ * start on time without spinning a core. A frame that overruns its budget
+ * moves the schedule forward rather than rendering a burst to catch up.
+ */
+public final class RenderLoop {
+    private static final long SPIN_NANOS = 1_000_000; // wake this early and yield up to the deadline
+    private static final long STATS_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final Runnable frame;
+    private final long periodNanos;
+    private final int fps;
+    private volatile boolean running;
+    private volatile boolean verbose;
+    private Thread thread;
+
+    // Frame statistics, read for the periodic log line
+    private long frames;
+    private long busyNanos;
+    private long lateFrames;
+
+    /** {@code frame} is run on the event dispatch thread {@code fps} times a second. */
+    public RenderLoop(int fps, Runnable frame) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("fps must be positive: " + fps);
+        }
+        this.fps = fps;
+        this.periodNanos = 1_000_000_000L / fps;
+        this.frame = frame;
+    }
+
+    public int fps() { return fps; }
+    public boolean isRunning() { return running; }
+
+    /** Log frame rate and frame time every few seconds; off by default. */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "render-loop");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("🎞️ Active rendering at " + fps + " FPS");
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        long statsStart = next;
+        while (running) {
+            long start = System.nanoTime();
+            try {
+                EventQueue.invokeAndWait(frame);
+            } catch (InterruptedException e) {
+                break;
+            } catch (InvocationTargetException e) {
+                System.err.println("Render frame failed: " + e.getCause());
+            }
+            long end = System.nanoTime();
+            frames++;
+            busyNanos += end - start;
+
+            next += periodNanos;
+            if (end - next > periodNanos) {
+                // More than a frame behind: skip ahead instead of bursting
+                next = end;
+                lateFrames++;
+            }
+            sleepUntil(next);
+
+            if (end - statsStart >= STATS_INTERVAL_NANOS) {
+                if (verbose) {
+                    logStats(end - statsStart);
+                }
+                resetStats();
+                statsStart = end;
+            }
+        }
+    }
+
+    private void sleepUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void logStats(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("🎞️ %.1f FPS, %.2f ms/frame busy, %d late%n",
+                frames / seconds, busyNanos / 1e6 / Math.max(1, frames), lateFrames);
+    }
+
+    private void resetStats() {
+        frames = 0;
+        busyNanos = 0;
+        lateFrames = 0;
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Self-check that {@link MoveSearch}'s parallel mode returns exactly the
+ * serial search's move: same column, row, rotation and score. Prints each
+ * disagreement and exits with status 1 if there was any.
+ *
+ * First it checks the board features every evaluator scores: the row and
+ * column transitions {@link FeatureVector} keeps incrementally must equal a
+ * direct count for every placement on random boards up to
+ * {@link BitBoard#MAX_WIDTH} columns, where the padded row needs 33 bits.
+ *
+ * Positions come from seeded greedy games on boards from 10 to 31 columns
+ * wide, plus random boards full of holes. Each is searched for the current
+ * piece alone (the fork/join candidate split, from 12 columns up) and with
+ * the next piece at a full and a narrow beam, from the spawn position and
+ * from anywhere (the fork/join leaf split). There are no deadlines, so both
+ * searches see every candidate. The parallel search runs on its own
+ * 4-thread pool, so workers really race even on a single-core machine.
+ *
+ * Usage: java -cp . SearchCheck [games per width] [seed]
+ * Defaults: 3 games from seed 1.
+ */
+public class SearchCheck {
+    private static final int[] WIDTHS = {10, 12, 16, 24, 31};
+    private static final int HEIGHT = 20;
+    private static final int MAX_PIECES_PER_GAME = 200;
+    private static final int CHECK_EVERY = 5; // pieces between compared positions
+    private static final int NARROW_BEAM = 4;
+    private static final int[] FEATURE_WIDTHS = {4, 10, 30, BitBoard.MAX_WIDTH};
+
+    private static int positions;
+    private static int searches;
+    private static int failures;
+    private static int featureChecks;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+
+        MoveSearch serial = new MoveSearch(false, null, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        MoveSearch parallel = new MoveSearch(true, pool, new EvalCache(1 << 16));
+        PathPlanner planner = new PathPlanner(4);
+        Random random = new Random(seed);
+
+        checkFeatures(random, games * 10);
+        for (int width : WIDTHS) {
+            for (int game = 0; game < games; game++) {
+                BitBoard board = new BitBoard(width, HEIGHT);
+                int piece = random.nextInt(7);
+                for (int placed = 0; placed < MAX_PIECES_PER_GAME; placed++) {
+                    int next = random.nextInt(7);
+                    if (placed % CHECK_EVERY == 0) {
+                        compare(serial, parallel, planner, board, piece, next);
+                    }
+                    MoveSearch.Move move = serial.findBestMove(board, piece);
+                    if (move == null) break;
+                    PieceTable.Orientation shape = TetrisEngine.PIECE_TABLE.get(piece, move.rotation);
+                    board.place(shape.rowMasks, move.x, move.y, piece + 1);
+                    board.clearFullRows();
+                    piece = next;
+                }
+            }
+            for (int i = 0; i < games * 10; i++) {
+                compare(serial, parallel, planner, randomBoard(random, width), random.nextInt(7), random.nextInt(7));
+            }
+        }
+        pool.shutdown();
+
+        if (failures > 0) {
+            System.out.println("❌ " + failures + " failures in " + featureChecks + " feature checks and "
+                    + searches + " searches over " + positions + " positions");
+            System.exit(1);
+        }
+        System.out.println("✅ Features matched a direct count in " + featureChecks + " placements; parallel search"
+                + " matched serial search in " + searches + " searches over " + positions + " positions");
+    }
+
+    // Every drop of a random piece on random boards, scored incrementally and recounted from scratch
+    private static void checkFeatures(Random random, int boards) {
+        int[] undo = new int[4];
+        for (int width : FEATURE_WIDTHS) {
+            FeatureVector vector = new FeatureVector();
+            BoardFeatures features = new BoardFeatures(width, HEIGHT);
+            for (int i = 0; i < boards; i++) {
+                BitBoard board = randomBoard(random, width);
+                vector.prepare(board);
+                features.rebuild(board);
+                int piece = random.nextInt(7);
+                for (int rotation = 0; rotation < 4; rotation++) {
+                    PieceTable.Orientation shape = TetrisEngine.PIECE_TABLE.get(piece, rotation);
+                    for (int x = 0; x + shape.width <= width; x++) {
+                        if (board.collides(shape.rowMasks, shape.width, x, 0)) continue;
+                        int y = 0;
+                        while (!board.collides(shape.rowMasks, shape.width, x, y + 1)) {
+                            y++;
+                        }
+                        features.place(shape, x, y, undo);
+                        vector.extract(board, features, shape, x, y, FeatureVector.ALL);
+                        features.remove(shape, x, y, undo);
+                        BitBoard placed = board.copyMasks();
+                        placed.place(shape.rowMasks, x, y, piece + 1);
+
+                        featureChecks++;
+                        int rows = countRowTransitions(placed);
+                        int columns = countColumnTransitions(placed);
+                        if (vector.get(FeatureVector.ROW_TRANSITIONS) != rows
+                                || vector.get(FeatureVector.COLUMN_TRANSITIONS) != columns) {
+                            failures++;
+                            System.out.println("❌ Transitions on a " + width + "-wide board, piece " + piece
+                                    + " at x=" + x + " y=" + y + " rotation=" + rotation + ": row "
+                                    + vector.get(FeatureVector.ROW_TRANSITIONS) + " (counted " + rows + "), column "
+                                    + vector.get(FeatureVector.COLUMN_TRANSITIONS) + " (counted " + columns + ")");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Side walls count as filled
+    private static int countRowTransitions(BitBoard board) {
+        int transitions = 0;
+        for (int y = 0; y < board.height(); y++) {
+            boolean previous = true;
+            for (int x = 0; x < board.width(); x++) {
+                boolean filled = board.isOccupied(x, y);
+                if (filled != previous) transitions++;
+                previous = filled;
+            }
+            if (!previous) transitions++;
+        }
+        return transitions;
+    }
+
+    // The space above the board counts as empty and the floor as filled
+    private static int countColumnTransitions(BitBoard board) {
+        int transitions = 0;
+        for (int x = 0; x < board.width(); x++) {
+            boolean previous = false;
+            for (int y = 0; y < board.height(); y++) {
+                boolean filled = board.isOccupied(x, y);
+                if (filled != previous) transitions++;
+                previous = filled;
+            }
+            if (!previous) transitions++;
+        }
+        return transitions;
+    }
+
+    private static void compare(MoveSearch serial, MoveSearch parallel, PathPlanner planner, BitBoard board,
+                                int piece, int next) {
+        positions++;
+        int[] pieces = {piece, next};
+        same("single piece", board, serial.findBestMove(board, piece), parallel.findBestMove(board, piece));
+        same("lookahead, full beam", board,
+                serial.findBestMove(board, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE),
+                parallel.findBestMove(board, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE));
+        same("lookahead, beam " + NARROW_BEAM, board,
+                serial.findBestMove(board, pieces, NARROW_BEAM, Long.MAX_VALUE),
+                parallel.findBestMove(board, pieces, NARROW_BEAM, Long.MAX_VALUE));
+
+        PathPlanner.Reachability reachable = planner.reachable(board, piece, board.width() / 2 - 1, 0, 0);
+        if (reachable.count() > 0) {
+            same("reachable lookahead", board,
+                    serial.findBestMove(board, reachable, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE),
+                    parallel.findBestMove(board, reachable, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE));
+            same("reachable drops", board,
+                    serial.findBestDrop(board, reachable, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE),
+                    parallel.findBestDrop(board, reachable, pieces, MoveSearch.FULL_BEAM, Long.MAX_VALUE));
+        }
+    }
+
+    private static void same(String search, BitBoard board, MoveSearch.Move serial, MoveSearch.Move parallel) {
+        searches++;
+        boolean same = serial == null ? parallel == null
+                : parallel != null && serial.x == parallel.x && serial.y == parallel.y
+                        && serial.rotation == parallel.rotation && Double.compare(serial.score, parallel.score) == 0;
+        if (!same) {
+            failures++;
+            System.out.println("❌ " + search + " on a " + board.width() + "x" + board.height() + " board (hash "
+                    + Long.toHexString(board.hash64()) + "): serial " + describe(serial)
+                    + ", parallel " + describe(parallel));
+        }
+    }
+
+    private static String describe(MoveSearch.Move move) {
+        return move == null ? "none"
+                : "x=" + move.x + " y=" + move.y + " rotation=" + move.rotation + " score=" + move.score;
+    }
+
+    // Ragged stacks with holes in the bottom half and nothing full
+    private static BitBoard randomBoard(Random random, int width) {
+        BitBoard board = new BitBoard(width, HEIGHT);
+        int[][] cells = new int[HEIGHT][width];
+        for (int y = HEIGHT / 2; y < HEIGHT; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[y][x] = random.nextInt(3) == 0 ? 0 : 1;
+            }
+            cells[y][random.nextInt(width)] = 0;
+        }
+        board.loadCells(cells);
+        return board;
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import com.google.gson.Gson;
+
+/**
+ * Compares SimpleTetrisServer's serving modes under many concurrent
+ * connections. Each run starts an in-process server, opens N persistent
+ * connections from a single selector-driven client, and has every
+ * connection make R request/reply round trips back to back. The server's
+ * move cache is turned off, so every reply comes from a fresh search.
+ *
+ * Usage: java -cp ".;lib/gson-2.10.1.jar" ServerBenchmark [rounds] [connections...]
+ * Defaults: 5 rounds at 1000 and 10000 connections. Large runs need a high
+ * open-file limit (two sockets per connection in one process).
+ */
+public class ServerBenchmark {
+    private static final int BASE_PORT = 3100;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int[] connectionCounts = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1000, 10000};
+
+        List<SimpleTetrisServer.Mode> modes = new ArrayList<>();
+        modes.add(SimpleTetrisServer.Mode.PLATFORM_THREADS);
+        if (SimpleTetrisServer.virtualThreadsAvailable()) {
+            modes.add(SimpleTetrisServer.Mode.VIRTUAL_THREADS);
+        } else {
+            System.out.println("⚠️ Virtual threads not available on this JDK, skipping that mode");
+        }
+        modes.add(SimpleTetrisServer.Mode.SELECTOR);
+
+        String request = new Gson().toJson(new TetrisServer.PurGame(10, 20, new int[20][10], 2, 5));
+
+        System.out.println("📊 Move cache disabled: every request runs the search");
+        System.out.printf("%-17s %7s %9s %10s %9s %9s %8s %8s%n",
+                "mode", "conns", "replies", "req/s", "p50 ms", "p99 ms", "threads", "heap MB");
+        int port = BASE_PORT;
+        for (int connections : connectionCounts) {
+            for (SimpleTetrisServer.Mode mode : modes) {
+                run(mode, port++, connections, rounds, request);
+            }
+        }
+    }
+
+    private static void run(SimpleTetrisServer.Mode mode, int port, int connections, int rounds, String request)
+            throws Exception {
+        SimpleTetrisServer server = new SimpleTetrisServer(port, Runtime.getRuntime().availableProcessors());
+        server.setMode(mode);
+        server.setVerbose(false);
+        server.setMoveCache(null); // every connection sends the same board; measure the search, not cache hits
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("❌ Benchmark server failed: " + e.getMessage());
+            }
+        }, "benchmark-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(200);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        System.gc();
+
+        Client client = new Client(port, connections, rounds, request);
+        try {
+            client.connectAll();
+            long start = System.nanoTime();
+            client.runRounds();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Runtime runtime = Runtime.getRuntime();
+            long heapMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+            long[] latencies = Arrays.copyOf(client.latencies, client.replies);
+            Arrays.sort(latencies);
+            System.out.printf("%-17s %7d %9d %10.0f %9.2f %9.2f %8d %8d%n",
+                    mode, connections, client.replies, client.replies / seconds,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                    threads.getPeakThreadCount(), heapMb);
+        } catch (IOException e) {
+            System.out.printf("%-17s %7d failed: %s%n", mode, connections, e.getMessage());
+        } finally {
+            client.close();
+            server.stop();
+            Thread.sleep(200);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    // All benchmark connections on one selector so the client side stays cheap
+    private static final class Client {
+        final int port;
+        final int rounds;
+        final byte[] request;
+        final Selector selector;
+        final SocketChannel[] channels;
+        final long[] latencies;
+        int replies;
+
+        Client(int port, int connections, int rounds, String request) throws IOException {
+            this.port = port;
+            this.rounds = rounds;
+            this.request = (request + "\n").getBytes(StandardCharsets.UTF_8);
+            this.selector = Selector.open();
+            this.channels = new SocketChannel[connections];
+            this.latencies = new long[connections * rounds];
+        }
+
+        void connectAll() throws IOException {
+            for (int i = 0; i < channels.length; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                channels[i] = channel;
+            }
+        }
+
+        void runRounds() throws IOException {
+            for (SocketChannel channel : channels) {
+                Exchange exchange = new Exchange();
+                channel.register(selector, SelectionKey.OP_READ, exchange);
+                send(channel, exchange);
+            }
+
+            int outstanding = channels.length;
+            while (outstanding > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    Exchange exchange = (Exchange) key.attachment();
+
+                    exchange.buffer.clear();
+                    int read = channel.read(exchange.buffer);
+                    if (read < 0) {
+                        throw new IOException("server closed a connection");
+                    }
+                    exchange.buffer.flip();
+                    while (exchange.buffer.hasRemaining()) {
+                        if (exchange.buffer.get() != '\n') continue;
+                        latencies[replies++] = System.nanoTime() - exchange.sentAt;
+                        if (++exchange.completed < rounds) {
+                            send(channel, exchange);
+                        } else {
+                            key.interestOps(0);
+                            outstanding--;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Requests are a few hundred bytes, well under the socket buffer
+        private void send(SocketChannel channel, Exchange exchange) throws IOException {
+            exchange.sentAt = System.nanoTime();
+            ByteBuffer buffer = ByteBuffer.wrap(request);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void close() throws IOException {
+            for (SocketChannel channel : channels) {
+                if (channel != null) channel.close();
+            }
+            selector.close();
+        }
+    }
+
+    private static final class Exchange {
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        long sentAt;
+        int completed;
+    }
+}
@@ -1,37 +1,406 @@
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
 import com.google.gson.*;
 
 /**
  * Simple TetrisServer implementation for testing Online Mode
- * This is a basic AI server that provides random but valid moves
+ * Moves come from the same placement search as the game's AI player: every
+ * column drop the current piece can reach from its spawn, one piece of
+ * lookahead with the next shape. The search widens its beam until a
+ * per-move deadline and answers with the best move found by then. Boards
+ * are scored by the {@link Evaluator} named with {@code --evaluator}, or
+ * the game config's {@code aiEvaluator}.
+ *
+ * One selector thread owns every socket: connections stay open and carry
+ * any number of newline-terminated PurGame/OpMove JSON exchanges. Complete
+ * request lines are handed to a bounded worker pool; requests from one
+ * connection run one at a time so replies keep their order. When the pool
+ * is saturated, or a client queues too much, the server stops reading that
+ * socket and lets TCP push back on the client.
+ *
+ * A client may open with {@link BinaryProtocol#HELLO} to switch its
+ * connection to length-prefixed binary frames; otherwise it speaks JSON.
+ * Either way it may pipeline requests without waiting for replies: a JSON
+ * PurGame's optional "id" is echoed in its OpMove, binary frames echo their
+ * seq, and a JSON array of PurGames (or a binary batch frame) is answered
+ * with one array of OpMoves.
+ *
+ * Answers are memoised in a {@link MoveCache} shared by all connections,
+ * so positions that recur across clients (openings especially) skip the
+ * AI. {@code --cache 0} turns it off.
+ *
+ * The thread-per-connection modes trade that machinery for plain blocking
+ * reads: each client gets a thread running a request loop, and a semaphore
+ * caps how many moves are computed at once so AI work cannot oversubscribe
+ * the cores. Virtual threads need JDK 21; on older JDKs that mode falls back
+ * to platform threads.
  */
 public class SimpleTetrisServer {
     private static final int PORT = 3000;
+    private static final int READ_BUFFER_BYTES = 8 * 1024;
+    private static final int MAX_LINE_BYTES = 1 << 20;     // larger requests close the connection
+    private static final int MAX_QUEUED_PER_CONNECTION = 64;
+    private static final int WORKER_QUEUE_CAPACITY = 4096;
+    private static final int DEFAULT_CACHE_ENTRIES = 1 << 16;
+    private static final long DEFAULT_CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final long DEFAULT_MOVE_DEADLINE_MS = 20;
+    private static final int MAX_SEARCH_BEAM = 16;
+    private static final int EVAL_CACHE_ENTRIES = 1 << 18;
+
+    /** How client sockets are served. */
+    public enum Mode { SELECTOR, VIRTUAL_THREADS, PLATFORM_THREADS }
+
+    private final int port;
+    private final int workerThreads;
+    private final Gson gson;
+    private volatile boolean running = false;
+    private volatile boolean verbose = true;
+    private Mode mode = Mode.SELECTOR;
+    private int maxInFlight;
+    private volatile MoveCache moveCache = new MoveCache(DEFAULT_CACHE_ENTRIES, DEFAULT_CACHE_TTL_MS);
+    private volatile long moveDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MOVE_DEADLINE_MS);
+
+    // Search state is per thread; board evaluations are shared by all of them. Scores belong
+    // to one evaluator, so setEvaluator swaps in a fresh cache and the searches follow it
+    private volatile Evaluator evaluator = EvaluatorProfile.DEFAULT;
+    private volatile EvalCache evalCache = new EvalCache(EVAL_CACHE_ENTRIES);
+    private final ThreadLocal<MoveSearch> searches = new ThreadLocal<>();
+    private final ThreadLocal<PathPlanner> planners = ThreadLocal.withInitial(() -> new PathPlanner(4));
+
+    // Thread-per-connection modes
     private ServerSocket serverSocket;
-    private Gson gson;
-    private boolean running = false;
-    
+    private Semaphore computeSlots;
+    private final Set<Socket> clientSockets = ConcurrentHashMap.newKeySet();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor workers;
+
+    // Handed from workers to the selector thread, which owns all interest-op changes
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Queue<Connection> resumedReads = new ConcurrentLinkedQueue<>();
+    private final Queue<Connection> stalled = new ConcurrentLinkedQueue<>();
+    private int openConnections = 0;
+
     public SimpleTetrisServer() {
+        this(PORT, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SimpleTetrisServer(int port, int workerThreads) {
+        this.port = port;
+        this.workerThreads = Math.max(1, workerThreads);
+        this.maxInFlight = this.workerThreads;
         this.gson = new Gson();
     }
-    
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** Thread-per-connection modes: most moves computed at once (defaults to the worker count). */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /** True when this JVM can start virtual threads. */
+    public static boolean virtualThreadsAvailable() {
+        return virtualThreadFactory() != null;
+    }
+
+    /** Time the AI may spend on one move before answering with the best placement so far. */
+    public void setMoveDeadlineMillis(long deadlineMs) {
+        this.moveDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, deadlineMs));
+    }
+
+    /**
+     * Score boards with {@code evaluator} from now on. Cached evaluations
+     * and best moves came from the previous one, so both caches start over.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.evalCache = new EvalCache(EVAL_CACHE_ENTRIES); // written last: searches key off the cache
+        MoveCache moves = moveCache;
+        if (moves != null) {
+            moveCache = new MoveCache(moves.capacity(), moves.ttlMillis());
+        }
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /** Replace the best-move cache; null disables caching. */
+    public void setMoveCache(MoveCache moveCache) {
+        this.moveCache = moveCache;
+    }
+
+    /** The best-move cache and its hit-rate counters, or null when disabled. */
+    public MoveCache getMoveCache() {
+        return moveCache;
+    }
+
+    /** Per-request logging; turn off when serving many clients. */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
     public void start() throws IOException {
-        serverSocket = new ServerSocket(PORT);
+        if (mode == Mode.SELECTOR) {
+            runSelector();
+        } else {
+            runThreadPerConnection();
+        }
+    }
+
+    private void runSelector() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "tetris-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
         running = true;
-        
-        System.out.println("🌐 TetrisServer started on port " + PORT);
+
+        System.out.println("🌐 TetrisServer started on port " + port + " (selector, " + workerThreads + " worker threads)");
         System.out.println("Waiting for Tetris game connections...");
-        
+
+        while (running) {
+            selector.select();
+            if (!running) break;
+
+            drainHandoffs();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read((Connection) key.attachment());
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush((Connection) key.attachment());
+                    }
+                } catch (IOException e) {
+                    Object attachment = key.attachment();
+                    if (attachment instanceof Connection) {
+                        close((Connection) attachment, e.getMessage());
+                    } else if (running) {
+                        System.err.println("Error accepting client: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections++;
+            if (verbose) {
+                System.out.println("📱 Client connected: " + channel.getRemoteAddress() + " (" + openConnections + " open)");
+            }
+        }
+    }
+
+    // Split incoming bytes into lines or frames and queue each one as a request
+    private void read(Connection connection) throws IOException {
+        ByteBuffer buffer = connection.readBuffer;
+        int count = connection.channel.read(buffer);
+        if (count < 0) {
+            close(connection, null);
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining() && !connection.closed) {
+            if (connection.binary) {
+                readFrame(connection, buffer);
+                continue;
+            }
+            byte b = buffer.get();
+            if (b == '\n') {
+                byte[] line = connection.line.toByteArray();
+                connection.line.reset();
+                if (!connection.greeted) {
+                    connection.greeted = true;
+                    if (greet(connection, line)) continue;
+                }
+                enqueue(connection, line);
+            } else if (connection.line.size() >= MAX_LINE_BYTES) {
+                close(connection, "request line exceeds " + MAX_LINE_BYTES + " bytes");
+                return;
+            } else {
+                connection.line.write(b);
+            }
+        }
+        buffer.clear();
+    }
+
+    // Protocol negotiation: only the first line of a connection may be a HELLO
+    private boolean greet(Connection connection, byte[] line) throws IOException {
+        String hello = new String(line, StandardCharsets.UTF_8).trim();
+        if (!hello.startsWith("HELLO")) return false;
+
+        connection.binary = hello.equals(BinaryProtocol.HELLO);
+        String answer = connection.binary ? BinaryProtocol.OK_BINARY : BinaryProtocol.OK_JSON;
+        connection.outbox.add(ByteBuffer.wrap((answer + "\n").getBytes(StandardCharsets.UTF_8)));
+        flush(connection);
+        if (verbose) {
+            System.out.println("🤝 Client negotiated " + (connection.binary ? "binary" : "JSON") + " protocol");
+        }
+        return true;
+    }
+
+    // Binary mode: a 4-byte length, then that many payload bytes
+    private void readFrame(Connection connection, ByteBuffer buffer) {
+        if (connection.frame == null) {
+            while (buffer.hasRemaining() && connection.lengthBytes < 4) {
+                connection.frameLength = (connection.frameLength << 8) | (buffer.get() & 0xFF);
+                connection.lengthBytes++;
+            }
+            if (connection.lengthBytes < 4) return;
+            if (connection.frameLength <= 0 || connection.frameLength > BinaryProtocol.MAX_FRAME_BYTES) {
+                close(connection, "bad frame length " + connection.frameLength);
+                return;
+            }
+            connection.frame = new byte[connection.frameLength];
+            connection.frameFill = 0;
+        }
+
+        int n = Math.min(buffer.remaining(), connection.frame.length - connection.frameFill);
+        buffer.get(connection.frame, connection.frameFill, n);
+        connection.frameFill += n;
+        if (connection.frameFill == connection.frame.length) {
+            byte[] frame = connection.frame;
+            connection.frame = null;
+            connection.frameLength = 0;
+            connection.lengthBytes = 0;
+            enqueue(connection, frame);
+        }
+    }
+
+    private void enqueue(Connection connection, byte[] line) {
+        boolean dispatch;
+        synchronized (connection) {
+            connection.requests.add(line);
+            dispatch = !connection.busy;
+            connection.busy = true;
+            if (connection.requests.size() >= MAX_QUEUED_PER_CONNECTION) {
+                setInterest(connection, SelectionKey.OP_READ, false);
+                connection.readPaused = true;
+            }
+        }
+        if (dispatch) {
+            dispatch(connection);
+        }
+    }
+
+    private void dispatch(Connection connection) {
+        try {
+            workers.execute(() -> serve(connection));
+        } catch (RejectedExecutionException e) {
+            // Pool is saturated: retry once a worker frees up
+            stalled.add(connection);
+        }
+    }
+
+    // Worker side: answer the oldest request, then hand the connection back
+    private void serve(Connection connection) {
+        byte[] request;
+        synchronized (connection) {
+            request = connection.requests.poll();
+        }
+        if (request != null && !connection.closed) {
+            byte[] response = handleRequest(request, connection.binary, connection.session);
+            if (response == null) {
+                connection.closeRequested = true;
+            } else if (response.length > 0) {
+                connection.outbox.add(ByteBuffer.wrap(response));
+            }
+            pendingWrites.add(connection);
+        }
+
+        boolean more;
+        synchronized (connection) {
+            more = !connection.requests.isEmpty() && !connection.closeRequested;
+            connection.busy = more;
+            if (connection.readPaused && connection.requests.size() < MAX_QUEUED_PER_CONNECTION / 2) {
+                connection.readPaused = false;
+                resumedReads.add(connection);
+            }
+        }
+        if (more) {
+            dispatch(connection);
+        }
+        if (!stalled.isEmpty() || !pendingWrites.isEmpty() || !resumedReads.isEmpty()) {
+            selector.wakeup();
+        }
+    }
+
+    private void runThreadPerConnection() throws IOException {
+        ThreadFactory factory = null;
+        if (mode == Mode.VIRTUAL_THREADS) {
+            factory = virtualThreadFactory();
+            if (factory == null) {
+                System.err.println("⚠️ Virtual threads need JDK 21+, using platform threads");
+            }
+        }
+        if (factory == null) {
+            factory = runnable -> {
+                Thread thread = new Thread(runnable, "tetris-client");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        computeSlots = new Semaphore(maxInFlight);
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port), 1024);
+        running = true;
+
+        System.out.println("🌐 TetrisServer started on port " + port + " (" + mode + ", " + maxInFlight + " moves in flight)");
+        System.out.println("Waiting for Tetris game connections...");
+
         while (running) {
             try {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("📱 Client connected: " + clientSocket.getInetAddress());
-                
-                // Handle client in separate thread
-                new Thread(() -> handleClient(clientSocket)).start();
-                
+                clientSocket.setTcpNoDelay(true);
+                clientSockets.add(clientSocket);
+                if (verbose) {
+                    System.out.println("📱 Client connected: " + clientSocket.getInetAddress());
+                }
+
+                // Handle client in its own (possibly virtual) thread
+                factory.newThread(() -> handleClient(clientSocket)).start();
+
             } catch (IOException e) {
                 if (running) {
                     System.err.println("Error accepting client: " + e.getMessage());
@@ -39,32 +408,47 @@ public class SimpleTetrisServer {
             }
         }
     }
-    
+
+    // Blocking request loop: one reply per request until the client hangs up
     private void handleClient(Socket clientSocket) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream()))) {
-            
-            // Read game state from client
-            String gameStateJson = reader.readLine();
-            System.out.println("📥 Received game state: " + gameStateJson.substring(0, Math.min(100, gameStateJson.length())) + "...");
-            
-            // Parse game state
-            PurGame gameState = gson.fromJson(gameStateJson, PurGame.class);
-            
-            // Calculate optimal move (simple AI)
-            OpMove optimalMove = calculateOptimalMove(gameState);
-            
-            // Send response
-            String responseJson = gson.toJson(optimalMove);
-            writer.write(responseJson);
-            writer.newLine();
-            writer.flush();
-            
-            System.out.println("📤 Sent optimal move: x=" + optimalMove.opX + ", rotations=" + optimalMove.opRotate);
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error handling client: " + e.getMessage());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+             OutputStream out = new BufferedOutputStream(clientSocket.getOutputStream())) {
+
+            boolean binary = false;
+            Session session = new Session();
+            byte[] request = readLine(in);
+            String first = request == null ? "" : new String(request, StandardCharsets.UTF_8).trim();
+            if (first.startsWith("HELLO")) {
+                binary = first.equals(BinaryProtocol.HELLO);
+                String answer = binary ? BinaryProtocol.OK_BINARY : BinaryProtocol.OK_JSON;
+                out.write((answer + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                request = binary ? readFrame(in) : readLine(in);
+            }
+
+            while (request != null) {
+                byte[] response;
+                computeSlots.acquire();
+                try {
+                    response = handleRequest(request, binary, session);
+                } finally {
+                    computeSlots.release();
+                }
+                if (response == null) break;
+
+                out.write(response);
+                out.flush();
+                request = binary ? readFrame(in) : readLine(in);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("❌ Error handling client: " + e.getMessage());
+            }
         } finally {
+            clientSockets.remove(clientSocket);
             try {
                 clientSocket.close();
             } catch (IOException e) {
@@ -72,73 +456,366 @@ public class SimpleTetrisServer {
             }
         }
     }
-    
+
+    // Bytes up to the next newline, or null at end of stream
+    private static byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) return line.size() > 0 ? line.toByteArray() : null;
+            if (line.size() >= MAX_LINE_BYTES) {
+                throw new IOException("request line exceeds " + MAX_LINE_BYTES + " bytes");
+            }
+            line.write(b);
+        }
+        return line.toByteArray();
+    }
+
+    // One length-prefixed frame payload, or null at end of stream
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    // Thread.ofVirtual() only exists on JDK 21+, so it is looked up reflectively
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
     /**
-     * Simple AI that calculates optimal move
-     * This is a basic implementation - replace with your advanced AI
+     * One request in, the encoded reply out: a JSON line or a binary frame,
+     * depending on the connection's protocol. Returns null when the request
+     * cannot be parsed, which closes the connection, and an empty array for
+     * blank lines, which get no reply.
      */
-    private OpMove calculateOptimalMove(PurGame gameState) {
-        int width = gameState.width;
-        int height = gameState.height;
-        int[][] board = gameState.cells;
-        
-        // Simple strategy: find position with lowest landing height
-        int bestX = width / 2;  // Default to center
-        int bestRotations = 0;  // Default no rotation
-        int minHeight = height;
-        
-        // Try different rotations (0-3)
-        for (int rotations = 0; rotations < 4; rotations++) {
-            // Try different X positions
-            for (int x = 0; x < width; x++) {
-                int landingHeight = calculateLandingHeight(board, x, width, height);
-                
-                // Prefer lower heights and avoid edges
-                int score = landingHeight;
-                if (x == 0 || x == width - 1) score += 2; // Penalty for edges
-                
-                if (score < minHeight) {
-                    minHeight = score;
-                    bestX = x;
-                    bestRotations = rotations;
+    private byte[] handleRequest(byte[] request, boolean binary, Session session) {
+        if (binary) {
+            return handleBinaryRequest(request, session);
+        }
+        String gameStateJson = new String(request, StandardCharsets.UTF_8).trim();
+        if (gameStateJson.isEmpty()) {
+            return new byte[0];
+        }
+        String response = handleRequest(gameStateJson);
+        return response == null ? null : (response + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] handleBinaryRequest(byte[] frame, Session session) {
+        try {
+            if (frame[0] == BinaryProtocol.BATCH_REQUEST) {
+                return handleBatchRequest(frame);
+            }
+            PurGame gameState = new PurGame();
+            int seq;
+            if (frame[0] == BinaryProtocol.SESSION_DELTA) {
+                BinaryProtocol.SessionDelta delta = BinaryProtocol.decodeSessionDelta(frame);
+                seq = delta.seq;
+                if (session.board == null || !BinaryProtocol.applySessionDelta(session.board, delta)) {
+                    // Diverged (or never synced): drop the session and ask for the whole board
+                    session.board = null;
+                    if (verbose) {
+                        System.out.println("🔄 Session out of sync, requesting resync (#" + seq + ")");
+                    }
+                    return BinaryProtocol.encodeResyncReply(seq);
+                }
+                gameState.width = session.board.width();
+                gameState.height = session.board.height();
+                gameState.cells = session.board.cells();
+                gameState.currentShape = delta.currentShape;
+                gameState.nextShape = delta.nextShape;
+            } else {
+                BinaryProtocol.MoveRequest request = BinaryProtocol.decodeMoveRequest(frame);
+                seq = request.seq;
+                gameState.width = request.width;
+                gameState.height = request.height;
+                gameState.cells = request.cells;
+                gameState.currentShape = request.currentShape;
+                gameState.nextShape = request.nextShape;
+                if (frame[0] == BinaryProtocol.SESSION_SYNC) {
+                    // A board too wide for BitBoard gets the stateless fallback and no session;
+                    // deltas that follow are answered with a resync
+                    session.board = request.width >= 1 && request.width <= BitBoard.MAX_WIDTH && request.height >= 1
+                            ? BitBoard.fromCells(request.cells, request.width, request.height)
+                            : null;
                 }
             }
+
+            OpMove optimalMove = cachedOptimalMove(gameState);
+
+            if (verbose) {
+                System.out.println("📤 Sent optimal move (binary #" + seq + "): x=" + optimalMove.opX + ", rotations=" + optimalMove.opRotate);
+            }
+            return BinaryProtocol.encodeMoveReply(seq, optimalMove.opX, optimalMove.opRotate);
+
+        } catch (Exception e) {
+            System.err.println("❌ Error handling client: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Stateless boards answered in order; sessions are left alone
+    private byte[] handleBatchRequest(byte[] frame) {
+        BinaryProtocol.MoveRequest[] boards = BinaryProtocol.decodeBatchRequest(frame);
+        int[] moves = new int[boards.length * 2];
+        for (int i = 0; i < boards.length; i++) {
+            PurGame gameState = new PurGame();
+            gameState.width = boards[i].width;
+            gameState.height = boards[i].height;
+            gameState.cells = boards[i].cells;
+            gameState.currentShape = boards[i].currentShape;
+            gameState.nextShape = boards[i].nextShape;
+            OpMove optimalMove = cachedOptimalMove(gameState);
+            moves[2 * i] = optimalMove.opX;
+            moves[2 * i + 1] = optimalMove.opRotate;
         }
-        
-        // Add some randomness to make it interesting
-        Random random = new Random();
-        if (random.nextDouble() < 0.1) { // 10% chance for random move
-            bestX = random.nextInt(width);
-            bestRotations = random.nextInt(4);
+        int seq = BinaryProtocol.replySeq(frame);
+        if (verbose) {
+            System.out.println("📤 Sent " + boards.length + " optimal moves (binary batch #" + seq + ")");
         }
-        
-        // Ensure bestX is within bounds
-        bestX = Math.max(0, Math.min(width - 1, bestX));
-        
-        return new OpMove(bestX, bestRotations);
+        return BinaryProtocol.encodeBatchReply(seq, moves);
     }
-    
+
     /**
-     * Calculate where a piece would land at given X position
+     * One PurGame JSON line in, one OpMove JSON line out, or an array of
+     * PurGames in and an array of OpMoves out. Each OpMove carries its
+     * PurGame's id, if it had one. Returns null when the request cannot be
+     * parsed.
      */
-    private int calculateLandingHeight(int[][] board, int x, int width, int height) {
-        // Find the highest occupied cell in column x
-        for (int y = 0; y < height; y++) {
-            if (x >= 0 && x < width && board[y][x] != 0) {
-                return y;
+    private String handleRequest(String gameStateJson) {
+        try {
+            if (verbose) {
+                System.out.println("📥 Received game state: " + gameStateJson.substring(0, Math.min(100, gameStateJson.length())) + "...");
+            }
+
+            if (gameStateJson.startsWith("[")) {
+                PurGame[] gameStates = gson.fromJson(gameStateJson, PurGame[].class);
+                OpMove[] optimalMoves = new OpMove[gameStates.length];
+                for (int i = 0; i < gameStates.length; i++) {
+                    optimalMoves[i] = cachedOptimalMove(gameStates[i]);
+                    optimalMoves[i].id = gameStates[i].id;
+                }
+                if (verbose) {
+                    System.out.println("📤 Sent " + optimalMoves.length + " optimal moves (batch)");
+                }
+                return gson.toJson(optimalMoves);
+            }
+
+            // Parse game state
+            PurGame gameState = gson.fromJson(gameStateJson, PurGame.class);
+
+            // Calculate optimal move (simple AI)
+            OpMove optimalMove = cachedOptimalMove(gameState);
+            optimalMove.id = gameState.id;
+
+            if (verbose) {
+                System.out.println("📤 Sent optimal move: x=" + optimalMove.opX + ", rotations=" + optimalMove.opRotate);
+            }
+            return gson.toJson(optimalMove);
+
+        } catch (Exception e) {
+            System.err.println("❌ Error handling client: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Selector thread: apply interest changes and retries queued by workers
+    private void drainHandoffs() {
+        Connection connection;
+        int retries = stalled.size();
+        while (retries-- > 0 && (connection = stalled.poll()) != null) {
+            dispatch(connection);
+        }
+        while ((connection = resumedReads.poll()) != null) {
+            setInterest(connection, SelectionKey.OP_READ, true);
+        }
+        while ((connection = pendingWrites.poll()) != null) {
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                close(connection, e.getMessage());
             }
         }
-        return height; // Column is empty
     }
-    
+
+    private void flush(Connection connection) throws IOException {
+        if (connection.closed) return;
+        ByteBuffer buffer;
+        while ((buffer = connection.outbox.peek()) != null) {
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                setInterest(connection, SelectionKey.OP_WRITE, true); // socket full, finish when writable
+                return;
+            }
+            connection.outbox.poll();
+        }
+        setInterest(connection, SelectionKey.OP_WRITE, false);
+        if (connection.closeRequested) {
+            close(connection, null);
+        }
+    }
+
+    private static void setInterest(Connection connection, int op, boolean on) {
+        SelectionKey key = connection.key;
+        if (key == null || !key.isValid()) return;
+        int ops = key.interestOps();
+        key.interestOps(on ? ops | op : ops & ~op);
+    }
+
+    private void close(Connection connection, String reason) {
+        if (connection.closed) return;
+        connection.closed = true;
+        openConnections--;
+        if (reason != null) {
+            System.err.println("❌ Error handling client: " + reason);
+        }
+        try {
+            if (verbose) {
+                System.out.println("👋 Client disconnected: " + connection.channel.getRemoteAddress() + " (" + openConnections + " open)");
+            }
+            connection.key.cancel();
+            connection.channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing client socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Board kept for a binary session so clients can send deltas. Only the
+     * worker currently serving the connection touches it.
+     */
+    private static final class Session {
+        BitBoard board; // null until the client syncs, or after it diverged
+    }
+
+    /** State for one client socket. Request bookkeeping is guarded by the connection's monitor. */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        final Deque<byte[]> requests = new ArrayDeque<>();
+        final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+        final Session session = new Session();
+        SelectionKey key;
+        boolean greeted;       // first line seen, so no more protocol negotiation
+        volatile boolean binary;
+        // Partial binary frame
+        int frameLength;
+        int lengthBytes;
+        byte[] frame;
+        int frameFill;
+        boolean busy;          // a worker owns this connection's next request
+        boolean readPaused;
+        volatile boolean closeRequested;
+        volatile boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    // Identical boards and pieces get the same answer, so look it up before running the AI
+    private OpMove cachedOptimalMove(PurGame gameState) {
+        MoveCache cache = moveCache;
+        long key = cache == null ? 0
+                : MoveCache.key(gameState.width, gameState.height, gameState.cells,
+                        gameState.currentShape, gameState.nextShape);
+        if (key == 0) {
+            return calculateOptimalMove(gameState);
+        }
+        int cached = cache.get(key);
+        if (cached >= 0) {
+            return new OpMove(cached >>> 8, cached & 0xFF);
+        }
+        OpMove optimalMove = calculateOptimalMove(gameState);
+        cache.put(key, optimalMove.opX, optimalMove.opRotate);
+        return optimalMove;
+    }
+
+    /**
+     * Board-aware AI: searches the column drops the current piece can reach
+     * from the spawn position (x = width / 2 - 1, top row, rotation 0, as the
+     * game spawns it), scores each with the next piece placed after it, and
+     * answers with the best one found before the move deadline. opRotate is
+     * the number of clockwise rotations from spawn and opX the column of the
+     * rotated shape's left edge, as in {@link TetrisEngine#PIECES}.
+     */
+    private OpMove calculateOptimalMove(PurGame gameState) {
+        long deadline = System.nanoTime() + moveDeadlineNanos;
+        int width = gameState.width;
+        int height = gameState.height;
+        int spawnX = width / 2 - 1;
+        OpMove fallback = new OpMove(Math.max(0, spawnX), 0);
+        if (!isPiece(gameState.currentShape) || width < 1 || width > BitBoard.MAX_WIDTH || height < 1
+                || gameState.cells == null) {
+            return fallback;
+        }
+
+        BitBoard board = BitBoard.fromCells(gameState.cells, width, height);
+        PathPlanner.Reachability reachable = planners.get().reachable(board, gameState.currentShape, spawnX, 0, 0);
+        if (reachable.count() == 0) {
+            return fallback; // Spawn is blocked: the game is over for this client
+        }
+        int[] pieces = isPiece(gameState.nextShape)
+                ? new int[] {gameState.currentShape, gameState.nextShape}
+                : new int[] {gameState.currentShape};
+        MoveSearch.Move best = search().findBestDropAnytime(board, reachable, pieces, MAX_SEARCH_BEAM, deadline);
+        return best == null ? fallback : new OpMove(best.x, best.rotation);
+    }
+
+    // This thread's search, rebuilt when setEvaluator has replaced the cache
+    private MoveSearch search() {
+        EvalCache cache = evalCache;
+        MoveSearch search = searches.get();
+        if (search == null || search.getCache() != cache) {
+            search = new MoveSearch(false, null, cache, evaluator);
+            searches.set(search);
+        }
+        return search;
+    }
+
+    private static boolean isPiece(int shape) {
+        return shape >= 0 && shape < TetrisEngine.PIECE_TABLE.pieceCount();
+    }
+
     public void stop() throws IOException {
         running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
         if (serverSocket != null) {
             serverSocket.close();
         }
+        for (Socket clientSocket : clientSockets) {
+            clientSocket.close();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (moveCache != null) {
+            System.out.println("📊 " + moveCache);
+        }
         System.out.println("🛑 TetrisServer stopped");
     }
-    
+
     /**
      * PurGame class - matches TetrisServer.java
      */
@@ -148,24 +825,60 @@ public class SimpleTetrisServer {
         public int[][] cells;
         public int currentShape;
         public int nextShape;
+        public Integer id;      // optional request id, echoed in the reply
     }
-    
+
     /**
-     * OpMove class - matches TetrisServer.java  
+     * OpMove class - matches TetrisServer.java
      */
     public static class OpMove {
         public int opX;
         public int opRotate;
-        
+        public Integer id;
+
         public OpMove(int opX, int opRotate) {
             this.opX = opX;
             this.opRotate = opRotate;
         }
     }
-    
+
     public static void main(String[] args) {
-        SimpleTetrisServer server = new SimpleTetrisServer();
-        
+        int port = PORT;
+        int workerThreads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        Mode mode = Mode.SELECTOR;
+        int maxInFlight = 0;
+        int cacheEntries = DEFAULT_CACHE_ENTRIES;
+        long cacheTtlMs = DEFAULT_CACHE_TTL_MS;
+        long deadlineMs = DEFAULT_MOVE_DEADLINE_MS;
+        // The game's config picks the AI evaluator unless --evaluator overrides it
+        String evaluatorName = GameData.configExists() ? GameData.loadConfig().aiEvaluator : Evaluators.DEFAULT_NAME;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--workers": workerThreads = Integer.parseInt(args[++i]); break;
+                case "--quiet": quiet = true; break;
+                case "--mode": mode = Mode.valueOf(args[++i].toUpperCase().replace('-', '_')); break;
+                case "--max-in-flight": maxInFlight = Integer.parseInt(args[++i]); break;
+                case "--cache": cacheEntries = Integer.parseInt(args[++i]); break;
+                case "--cache-ttl": cacheTtlMs = Long.parseLong(args[++i]) * 1000; break;
+                case "--deadline-ms": deadlineMs = Long.parseLong(args[++i]); break;
+                case "--evaluator": evaluatorName = args[++i]; break;
+                default: System.err.println("Ignoring unknown option " + args[i]);
+            }
+        }
+
+        SimpleTetrisServer server = new SimpleTetrisServer(port, workerThreads);
+        server.setVerbose(!quiet);
+        server.setMode(mode);
+        if (maxInFlight > 0) {
+            server.setMaxInFlight(maxInFlight);
+        }
+        server.setMoveDeadlineMillis(deadlineMs);
+        server.setMoveCache(cacheEntries > 0 ? new MoveCache(cacheEntries, cacheTtlMs) : null);
+        server.setEvaluator(Evaluators.byNameOrDefault(evaluatorName));
+        System.out.println("🧠 Evaluator: " + server.getEvaluator().name());
+
         // Add shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
@@ -174,12 +887,12 @@ public class SimpleTetrisServer {
                 System.err.println("Error stopping server: " + e.getMessage());
             }
         }));
-        
+
         try {
             server.start();
         } catch (IOException e) {
             System.err.println("❌ Failed to start server: " + e.getMessage());
-            System.err.println("Make sure port 3000 is not already in use");
+            System.err.println("Make sure port " + port + " is not already in use");
         }
     }
-}
\ No newline at end of file
+}
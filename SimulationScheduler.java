@@ -0,0 +1,135 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game clock on its own thread, so gravity and lock timing do
+ * not depend on how busy the event dispatch thread is.
+ *
+ * The thread runs {@code tick} {@link #TICK_HZ} times a second against a
+ * nanoTime schedule. When it falls behind it runs up to
+ * {@link #MAX_CATCH_UP_TICKS} ticks back to back, then gives up on the rest
+ * and moves the schedule forward rather than fast-forwarding the game.
+ *
+ * While the clock runs it owns the game state. Other threads hand it work
+ * with {@link #post}, which runs at the start of the next tick; once it has
+ * stopped, {@code post} refuses and the caller owns the state again.
+ */
+public final class SimulationScheduler {
+    public static final int TICK_HZ = TetrisEngine.TICK_HZ;
+    public static final long TICK_NANOS = 1_000_000_000L / TICK_HZ;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long SPIN_NANOS = 1_000_000; // wake this early and yield up to the deadline
+
+    private final Runnable tick;
+    private final Queue<Runnable> actions = new ConcurrentLinkedQueue<>();
+    private final Object lifecycle = new Object();
+    private volatile boolean running;
+    private volatile boolean active; // thread started and not yet past its last tick
+    private volatile Thread thread;
+
+    public SimulationScheduler(Runnable tick) {
+        this.tick = tick;
+    }
+
+    /** Start ticking; waits for a previous run that is still finishing its last tick. */
+    public synchronized void start() {
+        stop();
+        running = true;
+        active = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop ticking. From another thread this waits until the tick in
+     * progress has finished, so the caller can touch the game state as soon
+     * as it returns; from inside a tick it only stops the next one.
+     */
+    public void stop() {
+        running = false;
+        Thread current = thread;
+        if (current == null || current == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(current);
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** True from {@link #start} until the thread has finished its last tick. */
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isSimulationThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Queue {@code action} to run on the simulation thread before the next
+     * tick. Returns false, without queueing, when the clock is not running;
+     * the caller then owns the game state and can run the action itself.
+     * Actions still queued when the clock stops are dropped.
+     */
+    public boolean post(Runnable action) {
+        synchronized (lifecycle) {
+            if (!active) return false;
+            actions.add(action);
+            return true;
+        }
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                int due = 0;
+                while (running && System.nanoTime() - next >= 0 && due < MAX_CATCH_UP_TICKS) {
+                    runTick();
+                    next += TICK_NANOS;
+                    due++;
+                }
+                long now = System.nanoTime();
+                if (now - next > TICK_NANOS) {
+                    // Still more than a tick behind: drop the backlog
+                    next = now;
+                }
+                sleepUntil(next);
+            }
+        } finally {
+            synchronized (lifecycle) {
+                active = false;
+                actions.clear();
+            }
+        }
+    }
+
+    private void runTick() {
+        try {
+            Runnable action;
+            while ((action = actions.poll()) != null) {
+                action.run();
+            }
+            tick.run();
+        } catch (RuntimeException e) {
+            System.err.println("Simulation tick failed: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    private void sleepUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
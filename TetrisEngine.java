@@ -0,0 +1,396 @@
+import java.util.Random;
+
+/**
+ * Headless single-player Tetris: board, falling piece, scoring and levels
+ * with no AWT or Swing dependency and no static mutable configuration.
+ * Time only advances through {@link #tick(Input)} or {@link #step(Input)},
+ * so simulations, AI training and benchmarks can run at full CPU speed
+ * instead of the clock's pace.
+ *
+ * {@link #tick} runs the game's own timing: {@link #TICK_HZ} ticks a second,
+ * fractional gravity and a lock delay, through the same {@link Gravity}
+ * TetrisGame keeps per player. {@link #step} is the coarse form, one input and
+ * one row of gravity, locking as soon as the piece cannot fall. A hard drop
+ * locks the same piece in the same place either way.
+ *
+ * TetrisGame shares the rule helpers below (scoring, level curve, fall speed,
+ * rotation kicks) so both front ends play by the same rules.
+ */
+public final class TetrisEngine {
+
+    // Tetris pieces (7 standard pieces) - simplified 2D arrays
+    public static final int[][][] PIECES = {
+        // I-piece
+        {
+            {1,1,1,1}
+        },
+        // O-piece
+        {
+            {1,1},
+            {1,1}
+        },
+        // T-piece
+        {
+            {0,1,0},
+            {1,1,1}
+        },
+        // S-piece
+        {
+            {0,1,1},
+            {1,1,0}
+        },
+        // Z-piece
+        {
+            {1,1,0},
+            {0,1,1}
+        },
+        // J-piece
+        {
+            {1,0,0},
+            {1,1,1}
+        },
+        // L-piece
+        {
+            {0,0,1},
+            {1,1,1}
+        }
+    };
+
+    // Every rotation of every piece, precomputed once
+    public static final PieceTable PIECE_TABLE = new PieceTable(PIECES);
+
+    /** Simulation ticks per second; the game's SimulationScheduler runs at this rate. */
+    public static final int TICK_HZ = 60;
+
+    /** Returned by {@link #rotationKick} when no offset fits. */
+    public static final int NO_KICK = Integer.MIN_VALUE;
+
+    // Kick offsets in a sensible order: small left, small right, then bigger.
+    private static final int[] KICK_OFFSETS = { -1, +1, -2, +2, -3, +3 };
+    private static final int[] LINE_SCORES = {0, 40, 100, 300, 1200};
+    /** Player 2's line scores in multiplayer, for {@link #scoreForLines(int, int, int[])}. */
+    public static final int[] MULTIPLAYER_LINE_SCORES = {0, 100, 300, 500, 800};
+    private static final int MAX_LEVEL = 20;
+
+    /** One player action per step. */
+    public enum Input { NONE, LEFT, RIGHT, ROTATE, SOFT_DROP, HARD_DROP }
+
+    private final int width;
+    private final int height;
+    private final int startingLevel;
+    private final BitBoard board;
+    private final Random random;
+    private final Gravity gravity = new Gravity();
+
+    private int currentPiece;
+    private int nextPiece;
+    private int currentX;
+    private int currentY;
+    private int currentRotation;
+    private int score;
+    private int level;
+    private int linesCleared;
+    private int piecesPlaced;
+    private int lastLinesRemoved;
+    private boolean gameOver;
+
+    public TetrisEngine(int width, int height, int startingLevel, long seed) {
+        this.width = width;
+        this.height = height;
+        this.startingLevel = startingLevel;
+        this.board = new BitBoard(width, height);
+        this.random = new Random(seed);
+        reset();
+    }
+
+    public void reset() {
+        board.clear();
+        currentPiece = random.nextInt(PIECES.length);
+        nextPiece = random.nextInt(PIECES.length);
+        currentX = width / 2 - 1;
+        currentY = 0;
+        currentRotation = 0;
+        score = 0;
+        level = startingLevel;
+        linesCleared = 0;
+        piecesPlaced = 0;
+        lastLinesRemoved = 0;
+        gameOver = false;
+        gravity.reset();
+    }
+
+    /**
+     * Apply one input, then one gravity tick. A piece that cannot fall is
+     * locked, full lines are cleared and the next piece spawns.
+     *
+     * @return true when a piece locked during this step
+     */
+    public boolean step(Input input) {
+        if (gameOver) return false;
+        lastLinesRemoved = 0;
+        applyInput(input);
+
+        if (canMove(currentX, currentY + 1, currentRotation)) {
+            currentY++;
+            return false;
+        }
+        lockPiece();
+        return true;
+    }
+
+    /**
+     * Apply one input, then one tick of the game clock: gravity moves the
+     * piece by whole rows as its fraction of a row per tick adds up, and a
+     * piece resting on the stack locks once the lock delay has run out.
+     *
+     * @return true when a piece locked during this tick
+     */
+    public boolean tick(Input input) {
+        if (gameOver) return false;
+        lastLinesRemoved = 0;
+        applyInput(input);
+
+        int rows = gravity.rowsDue(level);
+        for (int i = 0; i < rows && canMove(currentX, currentY + 1, currentRotation); i++) {
+            currentY++;
+        }
+        if (!gravity.lockDue(!canMove(currentX, currentY + 1, currentRotation))) {
+            return false;
+        }
+        lockPiece();
+        return true;
+    }
+
+    private void applyInput(Input input) {
+        switch (input) {
+            case LEFT:
+                if (canMove(currentX - 1, currentY, currentRotation)) {
+                    currentX--;
+                    gravity.moved();
+                }
+                break;
+            case RIGHT:
+                if (canMove(currentX + 1, currentY, currentRotation)) {
+                    currentX++;
+                    gravity.moved();
+                }
+                break;
+            case ROTATE:
+                int newRotation = (currentRotation + 1) % 4;
+                int dx = rotationKick(board, currentPiece, newRotation, currentX, currentY);
+                if (dx != NO_KICK) {
+                    currentX += dx;
+                    currentRotation = newRotation;
+                    gravity.moved();
+                }
+                break;
+            case SOFT_DROP:
+                if (canMove(currentX, currentY + 1, currentRotation)) {
+                    currentY++;
+                    score += 1;
+                }
+                break;
+            case HARD_DROP:
+                while (canMove(currentX, currentY + 1, currentRotation)) {
+                    currentY++;
+                    score += 2;
+                }
+                gravity.hardDropped();
+                break;
+            case NONE:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Move the falling piece straight to (x, rotation) and hard drop it, as an
+     * AI with perfect control would. Returns false, changing nothing, when the
+     * target cannot be occupied at the current height.
+     */
+    public boolean dropAt(int x, int rotation) {
+        if (gameOver || !canMove(x, currentY, rotation)) return false;
+        currentX = x;
+        currentRotation = rotation & 3;
+        step(Input.HARD_DROP);
+        return true;
+    }
+
+    private void lockPiece() {
+        PieceTable.Orientation piece = PIECE_TABLE.get(currentPiece, currentRotation);
+        board.place(piece.rowMasks, currentX, currentY, currentPiece + 1);
+        piecesPlaced++;
+
+        int linesRemoved = board.clearFullRows();
+        lastLinesRemoved = linesRemoved;
+        if (linesRemoved > 0) {
+            linesCleared += linesRemoved;
+            score += scoreForLines(linesRemoved, level);
+            level = levelForLines(linesCleared);
+        }
+
+        currentPiece = nextPiece;
+        nextPiece = random.nextInt(PIECES.length);
+        currentX = width / 2 - 1;
+        currentY = 0;
+        currentRotation = 0;
+        gravity.reset();
+        if (!canMove(currentX, currentY, currentRotation)) {
+            gameOver = true;
+        }
+    }
+
+    private boolean canMove(int x, int y, int rotation) {
+        PieceTable.Orientation piece = PIECE_TABLE.get(currentPiece, rotation);
+        return !board.collides(piece.rowMasks, piece.width, x, y);
+    }
+
+    // Getters
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public BitBoard getBoard() { return board; }
+    public int getCurrentPiece() { return currentPiece; }
+    public int getNextPiece() { return nextPiece; }
+    public int getCurrentX() { return currentX; }
+    public int getCurrentY() { return currentY; }
+    public int getCurrentRotation() { return currentRotation; }
+    public int getScore() { return score; }
+    public int getLevel() { return level; }
+    public int getLinesCleared() { return linesCleared; }
+    public int getPiecesPlaced() { return piecesPlaced; }
+    public int getLastLinesRemoved() { return lastLinesRemoved; }
+    public boolean isGameOver() { return gameOver; }
+    public int getFallSpeed() { return fallSpeedForLevel(level); }
+
+    // Shared rules
+
+    public static int scoreForLines(int lines, int level) {
+        return scoreForLines(lines, level, LINE_SCORES);
+    }
+
+    /** Score for clearing {@code lines} rows at {@code level}, from a table indexed by line count. */
+    public static int scoreForLines(int lines, int level, int[] lineScores) {
+        return lineScores[lines] * level;
+    }
+
+    public static int levelForLines(int totalLines) {
+        return Math.min(totalLines / 10 + 1, MAX_LEVEL);
+    }
+
+    /**
+     * Multiplayer levelling for player 2: one level up once {@code totalLines}
+     * reaches ten per current level, at most one per clear and without a cap.
+     */
+    public static int levelAfterLines(int level, int totalLines) {
+        return totalLines / 10 >= level ? level + 1 : level;
+    }
+
+    /** Gravity interval in milliseconds for a level. */
+    public static int fallSpeedForLevel(int level) {
+        return Math.max(50, 500 - (level - 1) * 25);
+    }
+
+    /** Rows gravity moves a piece per tick of a {@code tickHz} clock, from {@link #fallSpeedForLevel}. */
+    public static double gravityPerTick(int level, int tickHz) {
+        return 1000.0 / (fallSpeedForLevel(level) * (double) tickHz);
+    }
+
+    /**
+     * Gravity and lock delay for one player's falling piece on the
+     * {@link #TICK_HZ} clock. The owner moves the piece; this only keeps time:
+     * how many rows gravity owes it, and how long it has rested on the stack.
+     */
+    public static final class Gravity {
+        /** Ticks a piece may rest on the stack before it locks: half a second. */
+        public static final int LOCK_DELAY_TICKS = TICK_HZ / 2;
+        /** Moves that restart the lock delay, per piece. */
+        public static final int MAX_LOCK_RESETS = 15;
+
+        private double owed;     // part of a row gravity has built up toward the next one
+        private int lockTicks;   // ticks spent resting
+        private int lockResets;  // lock delay restarts used by this piece
+
+        /** Add one tick of gravity at {@code level} and take the whole rows now due. */
+        public int rowsDue(int level) {
+            owed += gravityPerTick(level, TICK_HZ);
+            int rows = (int) (owed + 1e-9); // 30 ticks of 1/30 must add up to a whole row
+            owed -= rows;
+            return rows;
+        }
+
+        /** Part of a row gravity has built up toward the next one. */
+        public double owed() {
+            return owed;
+        }
+
+        /**
+         * Call once per tick after gravity has moved the piece: true once it
+         * has been {@code resting} on the stack for the whole lock delay.
+         */
+        public boolean lockDue(boolean resting) {
+            if (!resting) {
+                lockTicks = 0;
+                return false;
+            }
+            return ++lockTicks >= LOCK_DELAY_TICKS;
+        }
+
+        /** A move or rotation while resting restarts the lock delay, a limited number of times per piece. */
+        public void moved() {
+            if (lockTicks > 0 && lockResets < MAX_LOCK_RESETS) {
+                lockTicks = 0;
+                lockResets++;
+            }
+        }
+
+        /** A hard-dropped piece locks at the end of this tick instead of waiting out the delay. */
+        public void hardDropped() {
+            lockTicks = LOCK_DELAY_TICKS;
+        }
+
+        /** New piece: no gravity owed, full lock delay. */
+        public void reset() {
+            owed = 0;
+            lockTicks = 0;
+            lockResets = 0;
+        }
+    }
+
+    /**
+     * Horizontal offset that lets {@code piece} take {@code newRotation} at (x, y):
+     * 0 when it fits in place, otherwise the first wall-clamped kick that fits,
+     * or {@link #NO_KICK}.
+     */
+    public static int rotationKick(BitBoard board, int piece, int newRotation, int x, int y) {
+        PieceTable.Orientation rotated = PIECE_TABLE.get(piece, newRotation);
+        if (!board.collides(rotated.rowMasks, rotated.width, x, y)) {
+            return 0;
+        }
+
+        // Keep track to avoid retrying the same dx after clamping (bit dx + 32)
+        long tried = 0;
+
+        for (int baseDx : KICK_OFFSETS) {
+            int dx = baseDx;
+
+            // Clamp against left wall
+            if (x + dx < 0) {
+                dx = -x; // shift just enough to stay inside
+            }
+            // Clamp against right wall
+            if (x + dx + rotated.width > board.width()) {
+                dx = board.width() - rotated.width - x; // pull left just enough
+            }
+
+            // Skip duplicates created by clamping
+            long dxBit = 1L << (dx + 32);
+            if ((tried & dxBit) != 0) continue;
+            tried |= dxBit;
+
+            if (!board.collides(rotated.rowMasks, rotated.width, x + dx, y)) {
+                return dx;
+            }
+        }
+        return NO_KICK;
+    }
+}
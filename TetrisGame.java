@@ -1,7 +1,16 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @SuppressWarnings("unused")
 public class TetrisGame extends JFrame implements KeyListener {
@@ -25,46 +34,47 @@ public class TetrisGame extends JFrame implements KeyListener {
         Color.GREEN, Color.MAGENTA, Color.RED
     };
     
-    // Tetris pieces (7 standard pieces) - simplified 2D arrays
-    private static final int[][][] PIECES = {
-        // I-piece
-        {
-            {1,1,1,1}
-        },
-        // O-piece  
-        {
-            {1,1},
-            {1,1}
-        },
-        // T-piece
-        {
-            {0,1,0},
-            {1,1,1}
-        },
-        // S-piece
-        {
-            {0,1,1},
-            {1,1,0}
-        },
-        // Z-piece
-        {
-            {1,1,0},
-            {0,1,1}
-        },
-        // J-piece
-        {
-            {1,0,0},
-            {1,1,1}
-        },
-        // L-piece
-        {
-            {0,0,1},
-            {1,1,1}
-        }
-    };
+    // Piece shapes and their precomputed rotations live in the headless engine
+    private static final int[][][] PIECES = TetrisEngine.PIECES;
+    private static final PieceTable PIECE_TABLE = TetrisEngine.PIECE_TABLE;
+    
+    // Pre-rendered block tiles: board cells and the next piece preview
+    private static final int PREVIEW_BLOCK_SIZE = 20;
+    private final BlockSprites blockSprites = new BlockSprites(BLOCK_SIZE, COLORS);
+    private final BlockSprites previewSprites = new BlockSprites(PREVIEW_BLOCK_SIZE, COLORS);
+    
+    // Single-player board origin on screen
+    private static final int BOARD_X = 10;
+    private static final int BOARD_Y = 50;
+    
+    // Cached board layers (locked cells and grid), redrawn row by row as cells change
+    private final BoardLayer boardLayer = BoardLayer.flat(blockSprites);
+    private final BoardLayer splitLayer1 = BoardLayer.bevelled(blockSprites);
+    private final BoardLayer splitLayer2 = BoardLayer.bevelled(blockSprites);
+    
+    // Cached UI chrome (panels, titles, board frames), re-rendered only when
+    // its key - what it shows plus the window size - changes
+    private BufferedImage chromeImage;
+    private Object[] chromeKey;
+    
+    // Where each player's board was last painted, and the rows its falling
+    // piece and ghost covered, for repainting just those rows next step
+    private final Point[] boardOrigins = {new Point(BOARD_X, BOARD_Y), new Point(BOARD_X, BOARD_Y)};
+    private final int[] paintedTopRow = new int[2];
+    private final int[] paintedBottomRow = {BOARD_HEIGHT - 1, BOARD_HEIGHT - 1};
+    private final long[] paintedPieceState = {-1, -1};
+    
+    // The game snapshot the next paint draws, pinned when its dirty region was computed
+    private GameSnapshot view;
+    
+    // Split-screen strokes, shared instead of allocated every frame
+    private static final BasicStroke BOARD_BORDER_STROKE = new BasicStroke(2);
+    private static final BasicStroke PANEL_BORDER_STROKE = new BasicStroke(3);
+    private static final BasicStroke DIVIDER_STROKE = new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{5}, 0);
     
     // Game state
-    private int[][] board = new int[BOARD_HEIGHT][BOARD_WIDTH];
+    private BitBoard bitBoard = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+    private int[][] board = bitBoard.cells(); // colour plane of bitBoard, used for rendering/saving
     private int currentPiece = 0;
     private int currentX = BOARD_WIDTH / 2 - 1;
     private int currentY = 0;
@@ -73,8 +83,8 @@ public class TetrisGame extends JFrame implements KeyListener {
     private int score = 0;
     private int level = 1;
     private int linesCleared = 0;
-    private boolean gameOver = false;
-    private boolean paused = false;
+    private volatile boolean gameOver = false;
+    private volatile boolean paused = false;
     
     // Home screen state
     private boolean showSplashScreen = true;
@@ -97,6 +107,14 @@ public class TetrisGame extends JFrame implements KeyListener {
     private static boolean showNextPiece = true;
     private static String gameTheme = "Classic";
     private static int aiWinScore = AI_WIN_SCORE; // Configurable AI win score
+    private String aiEvaluator = Evaluators.DEFAULT_NAME; // Board evaluator used by the AI players
+    private boolean activeRendering = false; // Fixed-rate render loop instead of repaint() per step and key
+    private int renderFps = 60;
+    private volatile RenderLoop renderLoop;
+    
+    // Time of the frame being rendered; the render loop slides the falling
+    // piece on from the last tick's snapshot by the time since it was taken
+    private long frameNanos;
     
     // Save/Load Game system
     private static boolean showLoadGameScreen = false;
@@ -108,9 +126,11 @@ public class TetrisGame extends JFrame implements KeyListener {
     private static boolean isOnlineMode = false;
     private static boolean showOnlineSetup = false;
     private TetrisServer tetrisServer;
-    private boolean serverConnected = false;
+    private volatile boolean serverConnected = false;
+    private long pieceSequence = 0; // bumped on every spawn so late server replies can be recognised
     private long lastServerMoveTime = 0;
     private int serverMoveDelay = 500; // Delay between server requests
+    private final PathPlanner serverPathPlanner = new PathPlanner(16);
     
     // Multiplayer system
     private static boolean isMultiplayerMode = false;
@@ -125,7 +145,8 @@ public class TetrisGame extends JFrame implements KeyListener {
     private static int nameEntryPlayer = 1; // 1 or 2
     
     // Player 2 game state (for split screen)
-    private int[][] board2 = new int[BOARD_HEIGHT][BOARD_WIDTH];
+    private BitBoard bitBoard2 = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+    private int[][] board2 = bitBoard2.cells();
     private int currentPiece2 = 0;
     private int currentX2 = BOARD_WIDTH / 2 - 1;
     private int currentY2 = 0;
@@ -134,16 +155,22 @@ public class TetrisGame extends JFrame implements KeyListener {
     private int score2 = 0;
     private int level2 = 1;
     private int linesCleared2 = 0;
-    private boolean gameOver2 = false;
+    private volatile boolean gameOver2 = false;
     
     // Sound system
     private SoundManager soundManager;
     private static float musicVolume = 0.7f; // 0.0 to 1.0
     private static float effectsVolume = 0.8f; // 0.0 to 1.0
     
-    // Timer for game loop
-    private javax.swing.Timer gameTimer;
-    private int fallSpeed = 500; // milliseconds
+    // Fixed-rate game clock; it owns the game state while it runs
+    private final SimulationScheduler simulation = new SimulationScheduler(this::simulationTick);
+    
+    // Per player gravity and lock delay, timed by the same rules as TetrisEngine.tick
+    private final TetrisEngine.Gravity[] pieceGravity = {new TetrisEngine.Gravity(), new TetrisEngine.Gravity()};
+    
+    // The last tick's picture for the renderer, and whether a repaint for it is already queued
+    private volatile GameSnapshot published;
+    private final AtomicBoolean framePending = new AtomicBoolean();
     
     public TetrisGame() {
         setTitle("Tetris Game");
@@ -172,7 +199,7 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Initialize sound system
         try {
-            soundManager = new SoundManager();
+            soundManager = SoundManager.getInstance();
             soundManager.setMusicVolume(musicVolume);
             soundManager.setEffectsVolume(effectsVolume);
         } catch (Exception e) {
@@ -194,22 +221,17 @@ public class TetrisGame extends JFrame implements KeyListener {
         splashTimer.setRepeats(false);
         splashTimer.start();
         
-        // Don't start game timer immediately - wait for user to select "Play Game"
-        fallSpeed = 500;
-        
         // Initialize AI players
         aiPlayer1 = new AIPlayer(1);
         aiPlayer2 = new AIPlayer(2);
         
         // Initialize TetrisServer for online mode
-        tetrisServer = new TetrisServer();
+        tetrisServer = new TetrisServer("localhost", 3000, true); // Binary protocol, JSON if the server declines
     }
     
     private void initializeGame() {
         // Clear board
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            Arrays.fill(board[i], 0);
-        }
+        bitBoard.clear();
         
         // Initialize first pieces
         currentPiece = (int)(Math.random() * PIECES.length);
@@ -230,10 +252,8 @@ public class TetrisGame extends JFrame implements KeyListener {
     
     private void initializeMultiplayerGame() {
         // Clear both boards
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            Arrays.fill(board[i], 0);
-            Arrays.fill(board2[i], 0);
-        }
+        bitBoard.clear();
+        bitBoard2.clear();
         
         // Initialize pieces for Player 1
         currentPiece = (int)(Math.random() * PIECES.length);
@@ -263,8 +283,10 @@ public class TetrisGame extends JFrame implements KeyListener {
     
     private void resetGameBoardsWithNewDimensions() {
         // Recreate boards with new dimensions
-        board = new int[BOARD_HEIGHT][BOARD_WIDTH];
-        board2 = new int[BOARD_HEIGHT][BOARD_WIDTH];
+        bitBoard = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+        bitBoard2 = new BitBoard(BOARD_WIDTH, BOARD_HEIGHT);
+        board = bitBoard.cells();
+        board2 = bitBoard2.cells();
         
         // Reset positions to center of new board
         currentX = BOARD_WIDTH / 2 - 1;
@@ -279,45 +301,55 @@ public class TetrisGame extends JFrame implements KeyListener {
         });
     }
     
+    // One tick of the game clock, on the simulation thread
+    private void simulationTick() {
+        if (isMultiplayerMode) {
+            multiplayerGameStep();
+        } else if (isOnlineMode) {
+            onlineGameStep();
+        } else {
+            gameStep();
+        }
+        publishSnapshot();
+    }
+    
     private void gameStep() {
         if (showHomeScreen || showConfigScreen || gameOver || paused) return;
         
-        // AI move for single player if AI is selected
-        if (player1Type == 1 && aiPlayer1 != null) { // AI player
+        // AI move for single player if AI is selected, once per row of gravity
+        int rows = gravityRows(false);
+        if (rows > 0 && player1Type == 1 && aiPlayer1 != null) { // AI player
             aiPlayer1.makeMove();
         }
         
-        // Move piece down
-        if (canMove(currentX, currentY + 1, currentRotation)) {
-            currentY++;
-        } else {
-            // Place piece on board
-            placePiece();
-            
-            // Check for completed lines
-            clearLines();
-            
-            // Check if AI reached win score
-            if (player1Type == 1 && score >= aiWinScore) { // AI reached target points
-                gameOver = true;
-                gameTimer.stop();
-                showAIWinDialog();
-                return;
-            }
-            
-            // Spawn next piece
-            spawnNextPiece();
-            
-            // Check game over
-            if (!canMove(currentX, currentY, currentRotation)) {
-                gameOver = true;
-                gameTimer.stop();
-                showGameOverDialog();
-            }
+        // Move piece down; it locks once it has rested for the lock delay
+        if (!settlePiece(false, rows)) {
+            return;
         }
         
-        // Only repaint once per game step
-        repaint();
+        // Place piece on board
+        placePiece();
+        
+        // Check for completed lines
+        clearLines();
+        
+        // Check if AI reached win score
+        if (player1Type == 1 && score >= aiWinScore) { // AI reached target points
+            gameOver = true;
+            simulation.stop();
+            SwingUtilities.invokeLater(this::showAIWinDialog);
+            return;
+        }
+        
+        // Spawn next piece
+        spawnNextPiece();
+        
+        // Check game over
+        if (!canMove(currentX, currentY, currentRotation)) {
+            gameOver = true;
+            simulation.stop();
+            SwingUtilities.invokeLater(this::showGameOverDialog);
+        }
     }
     
     private void multiplayerGameStep() {
@@ -327,13 +359,12 @@ public class TetrisGame extends JFrame implements KeyListener {
         // Player 1 step
         if (!gameOver) {
             // AI move for player 1 if AI is selected
-            if (player1Type == 1 && aiPlayer1 != null) {
+            int rows = gravityRows(false);
+            if (rows > 0 && player1Type == 1 && aiPlayer1 != null) {
                 aiPlayer1.makeMove();
             }
 
-            if (canMove(currentX, currentY + 1, currentRotation)) {
-                currentY++;
-            } else {
+            if (settlePiece(false, rows)) {
                 placePiece();
                 clearLines();
 
@@ -353,13 +384,12 @@ public class TetrisGame extends JFrame implements KeyListener {
         // Player 2 step
         if (!gameOver2) {
             // AI move for player 2 if AI is selected
-            if (player2Type == 1 && aiPlayer2 != null) {
+            int rows = gravityRows(true);
+            if (rows > 0 && player2Type == 1 && aiPlayer2 != null) {
                 aiPlayer2.makeMove();
             }
 
-            if (canMove2(currentX2, currentY2 + 1, currentRotation2)) {
-                currentY2++;
-            } else {
+            if (settlePiece(true, rows)) {
                 placePiece2();
                 clearLines2();
 
@@ -378,182 +408,93 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Check if both players are finished
         if (gameOver && gameOver2) {
-            gameTimer.stop();
-            showMultiplayerGameOverDialog();
+            simulation.stop();
+            SwingUtilities.invokeLater(this::showMultiplayerGameOverDialog);
         }
-        
-        repaint();
     }
     
-    private boolean canMove(int x, int y, int rotation) {
-        int[][] piece = rotatePiece(PIECES[currentPiece], rotation);
-        
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int newX = x + px;
-                    int newY = y + py;
-                    
-                    // Check boundaries
-                    if (newX < 0 || newX >= BOARD_WIDTH || newY >= BOARD_HEIGHT) {
-                        return false;
-                    }
-                    
-                    // Check collision with placed pieces
-                    if (newY >= 0 && board[newY][newX] != 0) {
-                        return false;
-                    }
-                }
-            }
+    private TetrisEngine.Gravity gravity(boolean isPlayer2) {
+        return pieceGravity[isPlayer2 ? 1 : 0];
+    }
+    
+    /** Add a tick of gravity at the player's level and take the whole rows it now owes. */
+    private int gravityRows(boolean isPlayer2) {
+        return gravity(isPlayer2).rowsDue(isPlayer2 ? level2 : level);
+    }
+    
+    /**
+     * Let gravity move the player's piece down up to {@code rows} rows.
+     * Returns true once the piece has rested on the stack for the whole lock
+     * delay and should lock.
+     */
+    private boolean settlePiece(boolean isPlayer2, int rows) {
+        for (int i = 0; i < rows && canFall(isPlayer2); i++) {
+            if (isPlayer2) currentY2++;
+            else           currentY++;
         }
-        return true;
+        return gravity(isPlayer2).lockDue(!canFall(isPlayer2));
+    }
+    
+    private boolean canFall(boolean isPlayer2) {
+        return isPlayer2 ? canMove2(currentX2, currentY2 + 1, currentRotation2)
+                         : canMove(currentX, currentY + 1, currentRotation);
+    }
+    
+    private boolean canMove(int x, int y, int rotation) {
+        return canMoveGeneral(x, y, rotation, currentPiece, bitBoard);
     }
     
     private void placePiece() {
-        int[][] piece = rotatePiece(PIECES[currentPiece], currentRotation);
-        
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int newX = currentX + px;
-                    int newY = currentY + py;
-                    
-                    if (newY >= 0 && newY < BOARD_HEIGHT && newX >= 0 && newX < BOARD_WIDTH) {
-                        board[newY][newX] = currentPiece + 1;
-                    }
-                }
-            }
-        }
+        PieceTable.Orientation piece = PIECE_TABLE.get(currentPiece, currentRotation);
+        bitBoard.place(piece.rowMasks, currentX, currentY, currentPiece + 1);
     }
     
     private void clearLines() {
-        int linesRemoved = 0;
-        
-        for (int y = BOARD_HEIGHT - 1; y >= 0; y--) {
-            boolean fullLine = true;
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                if (board[y][x] == 0) {
-                    fullLine = false;
-                    break;
-                }
-            }
-            
-            if (fullLine) {
-                // Remove the line
-                for (int moveY = y; moveY > 0; moveY--) {
-                    System.arraycopy(board[moveY - 1], 0, board[moveY], 0, BOARD_WIDTH);
-                }
-                Arrays.fill(board[0], 0);
-                
-                linesRemoved++;
-                y++; // Check same line again
-            }
-        }
+        int linesRemoved = bitBoard.clearFullRows();
         
         if (linesRemoved > 0) {
             // Update score and level
             linesCleared += linesRemoved;
             score += calculateScore(linesRemoved);
-            level = Math.min(linesCleared / 10 + 1, 20);
+            level = TetrisEngine.levelForLines(linesCleared);
             
-            // Play sound effect for line clear
+            // Play sound effect for line clear; gravity picks the new level's speed up on the next tick
             playSound("clear");
-            
-            // Increase speed
-            fallSpeed = Math.max(50, 500 - (level - 1) * 25);
-            gameTimer.setDelay(fallSpeed);
         }
     }
     
     private int calculateScore(int lines) {
-        int[] lineScores = {0, 40, 100, 300, 1200};
-        return lineScores[lines] * level;
+        return TetrisEngine.scoreForLines(lines, level);
     }
     
     private void spawnNextPiece() {
+        pieceSequence++;
         currentPiece = nextPiece;
         nextPiece = (int)(Math.random() * PIECES.length);
         currentX = BOARD_WIDTH / 2 - 1;
         currentY = 0;
         currentRotation = 0;
+        gravity(false).reset();
     }
     
     // Player 2 methods
     private boolean canMove2(int x, int y, int rotation) {
-        int[][] piece = rotatePiece(PIECES[currentPiece2], rotation);
-        
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int newX = x + px;
-                    int newY = y + py;
-                    
-                    // Check boundaries
-                    if (newX < 0 || newX >= BOARD_WIDTH || newY >= BOARD_HEIGHT) {
-                        return false;
-                    }
-                    
-                    // Check collision with existing pieces
-                    if (newY >= 0 && board2[newY][newX] != 0) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return canMoveGeneral(x, y, rotation, currentPiece2, bitBoard2);
     }
     
     private void placePiece2() {
-        int[][] piece = rotatePiece(PIECES[currentPiece2], currentRotation2);
-        
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int newX = currentX2 + px;
-                    int newY = currentY2 + py;
-                    
-                    if (newY >= 0 && newY < BOARD_HEIGHT && newX >= 0 && newX < BOARD_WIDTH) {
-                        board2[newY][newX] = currentPiece2 + 1;
-                    }
-                }
-            }
-        }
+        PieceTable.Orientation piece = PIECE_TABLE.get(currentPiece2, currentRotation2);
+        bitBoard2.place(piece.rowMasks, currentX2, currentY2, currentPiece2 + 1);
     }
     
     private void clearLines2() {
-        int linesRemoved = 0;
+        int linesRemoved = bitBoard2.clearFullRows();
         
-        for (int y = BOARD_HEIGHT - 1; y >= 0; y--) {
-            boolean fullLine = true;
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                if (board2[y][x] == 0) {
-                    fullLine = false;
-                    break;
-                }
-            }
-            
-            if (fullLine) {
-                // Remove the line
-                for (int moveY = y; moveY > 0; moveY--) {
-                    System.arraycopy(board2[moveY - 1], 0, board2[moveY], 0, BOARD_WIDTH);
-                }
-                Arrays.fill(board2[0], 0);
-                
-                linesRemoved++;
-                y++; // Check same line again
-            }
-        }
-        
-        // Update score and level for Player 2
+        // Update score and level for Player 2, by the multiplayer table
         if (linesRemoved > 0) {
-            int[] linePoints = {0, 100, 300, 500, 800};
-            score2 += linePoints[linesRemoved] * level2;
+            score2 += TetrisEngine.scoreForLines(linesRemoved, level2, TetrisEngine.MULTIPLAYER_LINE_SCORES);
             linesCleared2 += linesRemoved;
-            
-            // Level up every 10 lines
-            if (linesCleared2 / 10 >= level2) {
-                level2++;
-            }
+            level2 = TetrisEngine.levelAfterLines(level2, linesCleared2);
             
             playSound("clear");
         }
@@ -565,6 +506,7 @@ public class TetrisGame extends JFrame implements KeyListener {
         currentX2 = BOARD_WIDTH / 2 - 1;
         currentY2 = 0;
         currentRotation2 = 0;
+        gravity(true).reset();
     }
     
     private void showMultiplayerGameOverDialog() {
@@ -594,38 +536,92 @@ public class TetrisGame extends JFrame implements KeyListener {
         System.out.println(message);
     }
     
-    private int[][] rotatePiece(int[][] piece, int rotation) {
-        int[][] result = piece;
-        
-        for (int i = 0; i < rotation % 4; i++) {
-            int rows = result.length;
-            int cols = result[0].length;
-            int[][] temp = new int[cols][rows];
-            
-            for (int y = 0; y < rows; y++) {
-                for (int x = 0; x < cols; x++) {
-                    temp[x][rows - 1 - y] = result[y][x];
-                }
-            }
-            result = temp;
-        }
-        
-        return result;
-    }
-    
     // Override update to prevent automatic clearing and reduce flicker
     @Override
     public void update(Graphics g) {
         paint(g);
     }
     
+    // Back buffer reused across frames, recreated only when the window is
+    // resized or moves to an incompatible screen
+    private Image backBuffer;
+    
+    // Whether the back buffer still holds the last frame, so a repaint of part
+    // of the window only needs to redraw that part
+    private boolean backBufferIntact;
+    
+    // Retries when a VolatileImage loses its contents while being drawn
+    private static final int MAX_CONTENTS_LOST_RETRIES = 3;
+    
     @Override
     public void paint(Graphics g) {
-        // Create off-screen image for double buffering
         Dimension size = getSize();
-        Image offScreen = createImage(size.width, size.height);
-        Graphics2D offGraphics = (Graphics2D) offScreen.getGraphics();
+        if (size.width <= 0 || size.height <= 0) {
+            return;
+        }
+        
+        Rectangle clip = g.getClipBounds();
+        int attempts = 0;
+        do {
+            Image buffer = validateBackBuffer(size.width, size.height);
+            Graphics2D offGraphics = (Graphics2D) buffer.getGraphics();
+            try {
+                if (clip != null && backBufferIntact) {
+                    offGraphics.clip(clip);
+                }
+                renderFrame(offGraphics, size);
+                backBufferIntact = true;
+            } finally {
+                offGraphics.dispose();
+            }
+            g.drawImage(buffer, 0, 0, this);
+        } while (backBuffer instanceof VolatileImage && ((VolatileImage) backBuffer).contentsLost()
+                && ++attempts < MAX_CONTENTS_LOST_RETRIES);
+    }
+    
+    /**
+     * The back buffer for a width x height frame. Accelerated screens get a
+     * VolatileImage, validated every frame; a new or restored surface is
+     * marked not intact so the next frame is drawn in full. Headless runs, or
+     * a pipeline that cannot create volatile images, get a BufferedImage.
+     */
+    private Image validateBackBuffer(int width, int height) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (backBuffer != null && backBuffer.getWidth(null) == width && backBuffer.getHeight(null) == height) {
+            if (!(backBuffer instanceof VolatileImage)) {
+                return backBuffer;
+            }
+            int status = gc == null ? VolatileImage.IMAGE_INCOMPATIBLE : ((VolatileImage) backBuffer).validate(gc);
+            if (status != VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (status == VolatileImage.IMAGE_RESTORED) {
+                    backBufferIntact = false;
+                }
+                return backBuffer;
+            }
+        }
         
+        if (backBuffer != null) {
+            backBuffer.flush();
+        }
+        backBuffer = createBackBuffer(gc, width, height);
+        backBufferIntact = false;
+        return backBuffer;
+    }
+    
+    private static Image createBackBuffer(GraphicsConfiguration gc, int width, int height) {
+        if (gc == null || GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        try {
+            return gc.createCompatibleVolatileImage(width, height);
+        } catch (RuntimeException e) {
+            System.err.println("Volatile back buffer unavailable, using a BufferedImage: " + e.getMessage());
+            return gc.createCompatibleImage(width, height);
+        }
+    }
+    
+    /** Draw one full frame; also usable on any image, e.g. for headless snapshots. */
+    void renderFrame(Graphics2D offGraphics, Dimension size) {
         // Clear the off-screen buffer
         offGraphics.setColor(getBackground());
         offGraphics.fillRect(0, 0, size.width, size.height);
@@ -647,35 +643,346 @@ public class TetrisGame extends JFrame implements KeyListener {
         } else if (showNameEntry) {
             drawNameEntryScreen(offGraphics);
         } else {
+            GameSnapshot view = viewForPaint();
             if (isMultiplayerMode) {
                 // Draw split-screen multiplayer
-                drawMultiplayerGame(offGraphics);
+                drawMultiplayerGame(offGraphics, view);
             } else {
                 // Draw board
-                drawBoard(offGraphics);
+                drawBoard(offGraphics, view.player1);
                 
                 // Draw current piece
-                if (!gameOver) {
-                    drawCurrentPiece(offGraphics);
+                if (!view.player1.gameOver) {
+                    drawCurrentPiece(offGraphics, view);
                     
                     // Draw ghost piece if enabled in config
                     if (showGhostPiece) {
-                        drawGhostPiece(offGraphics);
+                        drawGhostPiece(offGraphics, view.player1);
                     }
                 }
                 
                 // Draw UI for single player and online mode
                 if (isOnlineMode) {
-                    drawOnlineUI(offGraphics);
+                    drawOnlineUI(offGraphics, view);
                 } else {
-                    drawUI(offGraphics);
+                    drawUI(offGraphics, view);
                 }
             }
+            notePaintedPieceRows(view);
+        }
+    }
+    
+    /**
+     * The latest game state for the renderer. While the simulation runs that
+     * is the snapshot its last tick published; otherwise this thread owns the
+     * state and takes a fresh one.
+     */
+    private GameSnapshot currentSnapshot() {
+        GameSnapshot snapshot = published;
+        if (snapshot == null || !simulation.isActive()) {
+            snapshot = captureSnapshot(snapshot);
+        }
+        return snapshot;
+    }
+    
+    /**
+     * The snapshot to paint: the one the last dirty region was computed
+     * from, so the clip covers what is drawn, unless the simulation is
+     * stopped and the game may have changed on this thread since.
+     */
+    private GameSnapshot viewForPaint() {
+        if (view == null || !simulation.isActive() || (view.player2 != null) != isMultiplayerMode) {
+            view = currentSnapshot();
+        }
+        return view;
+    }
+    
+    /** Copy what the renderer needs out of the game state; called by whichever thread owns it. */
+    private GameSnapshot captureSnapshot(GameSnapshot previous) {
+        GameSnapshot.Player player1 = capturePlayer(false, previous == null ? null : previous.player1);
+        GameSnapshot.Player player2 = isMultiplayerMode
+                ? capturePlayer(true, previous == null ? null : previous.player2) : null;
+        return new GameSnapshot(player1, player2, paused, System.nanoTime());
+    }
+    
+    private GameSnapshot.Player capturePlayer(boolean isPlayer2, GameSnapshot.Player previous) {
+        BitBoard gameBoard = isPlayer2 ? bitBoard2 : bitBoard;
+        int pieceIndex = isPlayer2 ? currentPiece2 : currentPiece;
+        int rotation = isPlayer2 ? currentRotation2 : currentRotation;
+        int x = isPlayer2 ? currentX2 : currentX;
+        int y = isPlayer2 ? currentY2 : currentY;
+        int ghostY = y;
+        while (canMoveGeneral(x, ghostY + 1, rotation, pieceIndex, gameBoard)) {
+            ghostY++;
+        }
+        
+        long hash = gameBoard.hash64();
+        int playerLevel = isPlayer2 ? level2 : level;
+        return new GameSnapshot.Player(
+                GameSnapshot.Player.cellsFor(gameBoard.cells(), hash, previous), hash,
+                pieceIndex, rotation, x, y, ghostY,
+                ghostY > y ? gravity(isPlayer2).owed() : 0.0,
+                TetrisEngine.gravityPerTick(playerLevel, SimulationScheduler.TICK_HZ),
+                isPlayer2 ? nextPiece2 : nextPiece,
+                isPlayer2 ? score2 : score, playerLevel, isPlayer2 ? linesCleared2 : linesCleared,
+                isPlayer2 ? gameOver2 : gameOver);
+    }
+    
+    /**
+     * End of a tick: hand the state to the renderer and, when the picture
+     * changed, queue one repaint on the event dispatch thread. Ticks that
+     * only moved gravity along inside a row repaint nothing unless the
+     * render loop is sliding pieces.
+     */
+    private void publishSnapshot() {
+        GameSnapshot previous = published;
+        GameSnapshot next = captureSnapshot(previous);
+        published = next;
+        if (isRenderLoopRunning() || next.sameFrame(previous)) {
+            return;
+        }
+        if (framePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                framePending.set(false);
+                repaintPlayfield();
+            });
+        }
+    }
+    
+    // Hand in-game input to the simulation, or apply it here while the clock is stopped (e.g. paused)
+    private void runOnSimulation(Runnable action) {
+        if (!simulation.post(action)) {
+            action.run();
+            repaintPlayfield();
+        }
+    }
+    
+    // Start the game clock for a new game or a loaded one
+    private void startSimulation() {
+        gravity(false).reset();
+        gravity(true).reset();
+        resumeSimulation();
+    }
+    
+    // Restart the clock where it stopped; the renderer gets the current state before the first tick
+    private void resumeSimulation() {
+        simulation.stop();
+        published = captureSnapshot(null);
+        view = published;
+        simulation.start();
+    }
+    
+    /**
+     * Repaint after a game tick or an in-game key: just the board rows the
+     * falling pieces and ghosts left or entered, plus rows whose locked cells
+     * changed. When anything in the chrome changed too (score, next piece,
+     * pause, game over, window size), the whole window is repainted.
+     */
+    private void repaintPlayfield() {
+        if (isRenderLoopRunning()) {
+            return; // the render loop picks the change up on its next frame
+        }
+        Rectangle dirty = playfieldDirtyRegion();
+        if (dirty == null) {
+            repaint();
+        } else if (!dirty.isEmpty()) {
+            repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+        }
+    }
+    
+    /**
+     * Pin the current snapshot for the next paint and return the part of the
+     * window it has to repaint: null for all of it, empty when nothing on the
+     * boards changed since the last paint. A repaint already queued for an
+     * older snapshot still covers what that one changed, and this adds what
+     * the newer one changed, so the pinned snapshot is always inside the clip.
+     */
+    private Rectangle playfieldDirtyRegion() {
+        if (!isGameScreen()) {
+            return null;
+        }
+        view = currentSnapshot();
+        Object[] key = currentChromeKey(view);
+        if (!Arrays.equals(key, chromeKey) || !backBufferIntact) {
+            return null;
+        }
+        Rectangle dirty = new Rectangle(0, 0, -1, -1);
+        if (isMultiplayerMode) {
+            addDirtyBoardRows(dirty, view.player1, 0, splitLayer1);
+            addDirtyBoardRows(dirty, view.player2, 1, splitLayer2);
+        } else {
+            addDirtyBoardRows(dirty, view.player1, 0, boardLayer);
+        }
+        return dirty;
+    }
+    
+    private void addDirtyBoardRows(Rectangle dirty, GameSnapshot.Player state, int player, BoardLayer layer) {
+        int changedTop = layer.firstChangedRow(state.cells);
+        if (changedTop < 0 && pieceState(state) == paintedPieceState[player]) {
+            return;
+        }
+        
+        int top = Math.min(paintedTopRow[player], state.y);
+        int bottom = Math.max(paintedBottomRow[player], pieceBottomRow(state));
+        if (changedTop >= 0) {
+            top = Math.min(top, changedTop);
+            bottom = Math.max(bottom, layer.lastChangedRow(state.cells));
         }
+        top = Math.max(0, top);
+        bottom = Math.min(BOARD_HEIGHT - 1, bottom);
+        if (top > bottom) return;
         
-        // Draw the off-screen image to the main graphics
-        g.drawImage(offScreen, 0, 0, this);
-        offGraphics.dispose();
+        // One extra pixel for the closing grid line and the flat tiles' overhang
+        Point origin = boardOrigins[player];
+        dirty.add(new Rectangle(origin.x, origin.y + top * BLOCK_SIZE,
+                BOARD_WIDTH * BLOCK_SIZE + 1, (bottom - top + 1) * BLOCK_SIZE + 1));
+    }
+    
+    private void notePaintedPieceRows(GameSnapshot view) {
+        notePaintedPieceRows(view.player1, 0);
+        if (view.player2 != null) {
+            notePaintedPieceRows(view.player2, 1);
+        }
+    }
+    
+    private void notePaintedPieceRows(GameSnapshot.Player state, int player) {
+        paintedTopRow[player] = state.y;
+        paintedBottomRow[player] = pieceBottomRow(state);
+        paintedPieceState[player] = pieceState(state);
+    }
+    
+    // Everything about a falling piece that shows on screen, packed for comparison
+    private long pieceState(GameSnapshot.Player state) {
+        long piece = state.piece;
+        long rotation = state.rotation;
+        long x = state.x & 0xFF;
+        long y = state.y & 0xFF;
+        return piece << 40 | rotation << 32 | x << 24 | y << 16 | fallOffset(state);
+    }
+    
+    /**
+     * Pixels the falling piece has slid toward the row below: the gravity
+     * the snapshot's tick left owing, carried on by the time since that tick.
+     * Only the render loop draws between rows, so passive rendering always
+     * gets 0; the piece stops a pixel short of the next row so reaching it
+     * never moves the piece backwards.
+     */
+    private int fallOffset(GameSnapshot.Player state) {
+        GameSnapshot snapshot = view;
+        if (!isRenderLoopRunning() || snapshot == null || snapshot.paused || state.gameOver || state.ghostY == state.y) {
+            return 0;
+        }
+        double ticks = Math.max(0.0, Math.min(1.0, (frameNanos - snapshot.tickNanos) / (double) SimulationScheduler.TICK_NANOS));
+        double fraction = Math.min(1.0, state.fall + ticks * state.fallPerTick);
+        return (int) (fraction * (BLOCK_SIZE - 1));
+    }
+    
+    private boolean isRenderLoopRunning() {
+        return renderLoop != null && renderLoop.isRunning();
+    }
+    
+    // Start or stop the render loop to match the configuration
+    private void updateRenderLoop() {
+        if (renderLoop != null && (!activeRendering || renderLoop.fps() != renderFps)) {
+            renderLoop.stop();
+            renderLoop = null;
+        }
+        if (activeRendering && renderLoop == null) {
+            renderLoop = new RenderLoop(Math.max(1, renderFps), this::renderLoopFrame);
+            renderLoop.start();
+        }
+    }
+    
+    /**
+     * One frame of the render loop, on the event dispatch thread: paint the
+     * dirty part of the playfield straight to the window. Menus keep
+     * repainting on demand.
+     */
+    private void renderLoopFrame() {
+        if (!isShowing() || !isGameScreen()) {
+            return;
+        }
+        frameNanos = System.nanoTime();
+        Rectangle dirty = playfieldDirtyRegion();
+        if (dirty != null && dirty.isEmpty()) {
+            return;
+        }
+        Graphics g = getGraphics();
+        if (g == null) {
+            return;
+        }
+        try {
+            if (dirty != null) {
+                g.clipRect(dirty.x, dirty.y, dirty.width, dirty.height);
+            }
+            paint(g);
+        } finally {
+            g.dispose();
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+    
+    // Lowest row of the falling piece, or of its ghost when ghosts are shown;
+    // with the render loop the piece can also be sliding into the row below
+    private int pieceBottomRow(GameSnapshot.Player state) {
+        int height = PIECE_TABLE.get(state.piece, state.rotation).height;
+        int bottom = state.y + height - (isRenderLoopRunning() ? 0 : 1);
+        int y = showGhostPiece ? state.ghostY : state.y;
+        return Math.max(bottom, y + height - 1);
+    }
+    
+    private boolean isGameScreen() {
+        return !(showSplashScreen || showHomeScreen || showLoadGameScreen || showConfigScreen
+                || showHighscoreScreen || showPlayerSelection || showNameEntry);
+    }
+    
+    /**
+     * What the chrome of the game screen shows for {@code view}, or null
+     * outside a game. Includes pause and game over, which draw over the board.
+     */
+    private Object[] currentChromeKey(GameSnapshot view) {
+        if (!isGameScreen()) {
+            return null;
+        }
+        GameSnapshot.Player p1 = view.player1;
+        if (isMultiplayerMode) {
+            GameSnapshot.Player p2 = view.player2;
+            return new Object[] {"multiplayer", getWidth(), getHeight(), BOARD_WIDTH, BOARD_HEIGHT, gameTheme,
+                    player1Name, player2Name, player1Type, player2Type, p1.score, p2.score, p1.level, p2.level,
+                    p1.lines, p2.lines, p1.nextPiece, p2.nextPiece, p1.gameOver, p2.gameOver, aiWinScore, view.paused};
+        }
+        if (isOnlineMode) {
+            return new Object[] {"online", getWidth(), getHeight(), BOARD_WIDTH, BOARD_HEIGHT, serverConnected,
+                    serverMoveDelay, p1.score, p1.level, p1.lines, p1.nextPiece, showNextPiece, p1.gameOver, view.paused};
+        }
+        return new Object[] {"single", getWidth(), getHeight(), BOARD_WIDTH, BOARD_HEIGHT, p1.score, p1.level,
+                p1.lines, p1.nextPiece, showNextPiece, soundEnabled, musicEnabled, p1.gameOver, view.paused};
+    }
+    
+    /**
+     * Draw the chrome right of {@code x}, re-rendering it with {@code painter}
+     * (in window coordinates, over the window background) only when
+     * {@link #currentChromeKey} for {@code view} changed.
+     */
+    private void drawChrome(Graphics2D g, GameSnapshot view, int x, Consumer<Graphics2D> painter) {
+        int width = Math.max(1, getWidth() - x);
+        int height = Math.max(1, getHeight());
+        Object[] key = currentChromeKey(view);
+        if (chromeImage == null || chromeImage.getWidth() != width || chromeImage.getHeight() != height) {
+            chromeImage = BlockSprites.createImage(width, height);
+            chromeKey = null;
+        }
+        if (!Arrays.equals(key, chromeKey)) {
+            Graphics2D chrome = chromeImage.createGraphics();
+            chrome.setColor(getBackground());
+            chrome.fillRect(0, 0, width, height);
+            chrome.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            chrome.translate(-x, 0);
+            painter.accept(chrome);
+            chrome.dispose();
+            chromeKey = key;
+        }
+        g.drawImage(chromeImage, x, 0, null);
     }
     
     private void drawSplashScreen(Graphics2D g) {
@@ -1109,9 +1416,28 @@ public class TetrisGame extends JFrame implements KeyListener {
         }
     }
     
-    private void drawMultiplayerGame(Graphics2D g) {
+    // Split-screen positions for one window size
+    private static final class MultiplayerLayout {
+        int width;
+        int height;
+        int infoWidth;
+        int boardWidth;
+        int boardHeight;
+        int requiredWidth;
+        int spacing;
+        int player1BoardX;
+        int player2BoardX;
+        int boardY;
+        int panel2X;
+        boolean player2Adjusted;
+    }
+    
+    private MultiplayerLayout multiplayerLayout() {
+        MultiplayerLayout layout = new MultiplayerLayout();
         int width = getWidth();
         int height = getHeight();
+        layout.width = width;
+        layout.height = height;
         
         // Define layout dimensions - more conservative
         int infoWidth = 140;  // Reduce info panel width
@@ -1129,14 +1455,87 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Calculate positions with guaranteed fit
         int spacing = Math.max(5, (width - (2 * infoWidth) - (2 * boardWidth)) / 4);
-        int player1BoardX = infoWidth + spacing;
-        int player2BoardX = player1BoardX + boardWidth + spacing;
-        int boardY = Math.max(80, (height - boardHeight) / 4);
+        layout.player1BoardX = infoWidth + spacing;
+        layout.player2BoardX = layout.player1BoardX + boardWidth + spacing;
+        layout.boardY = Math.max(80, (height - boardHeight) / 4);
+        
+        // Player 2 panel goes right of the board, ensuring it fits
+        layout.panel2X = Math.min(width - infoWidth, layout.player2BoardX + boardWidth + spacing);
+        
+        // Only draw Player 2 board if it fits in window
+        if (layout.player2BoardX + boardWidth > width - 10) {
+            // Move Player 2 board to fit
+            layout.player2BoardX = width - boardWidth - 10;
+            layout.player2Adjusted = true;
+        }
+        
+        layout.infoWidth = infoWidth;
+        layout.boardWidth = boardWidth;
+        layout.boardHeight = boardHeight;
+        layout.requiredWidth = requiredWidth;
+        layout.spacing = spacing;
+        return layout;
+    }
+    
+    private void drawMultiplayerGame(Graphics2D g, GameSnapshot view) {
+        MultiplayerLayout layout = multiplayerLayout();
+        int player1BoardX = layout.player1BoardX;
+        int player2BoardX = layout.player2BoardX;
+        int boardY = layout.boardY;
+        GameSnapshot.Player p1 = view.player1;
+        GameSnapshot.Player p2 = view.player2;
+        
+        // Background, title, info panels and board frames
+        drawChrome(g, view, 0, chrome -> drawMultiplayerChrome(chrome, layout, view));
+        
+        // Draw Player 1 board
+        boardOrigins[0].setLocation(player1BoardX, boardY);
+        drawBoardAtPosition(g, player1BoardX, boardY, splitLayer1, p1.cells);
+        if (!p1.gameOver) {
+            if (showGhostPiece) {
+                drawGhostPieceAtPosition(g, player1BoardX, boardY, p1);
+            }
+            drawCurrentPieceAtPosition(g, player1BoardX, boardY, p1);
+        }
+        
+        // Draw Player 2 board  
+        boardOrigins[1].setLocation(player2BoardX, boardY);
+        drawBoardAtPosition(g, player2BoardX, boardY, splitLayer2, p2.cells);
+        if (!p2.gameOver) {
+            if (showGhostPiece) {
+                drawGhostPieceAtPosition(g, player2BoardX, boardY, p2);
+            }
+            drawCurrentPieceAtPosition(g, player2BoardX, boardY, p2);
+        }
         
-        // Debug - log positions to console
+        // Draw center divider line (optional, more subtle)
+        int centerX = layout.width / 2;
+        g.setColor(new Color(getThemeTextColor().getRed(), getThemeTextColor().getGreen(), 
+                            getThemeTextColor().getBlue(), 60)); // Semi-transparent
+        g.setStroke(DIVIDER_STROKE);
+        g.drawLine(centerX, 70, centerX, layout.height - 20);
+        
+        // Draw winner message if both games are over
+        if (p1.gameOver && p2.gameOver) {
+            drawMultiplayerWinner(g, view);
+        }
+    }
+    
+    private void drawMultiplayerChrome(Graphics2D g, MultiplayerLayout layout, GameSnapshot view) {
+        int width = layout.width;
+        int height = layout.height;
+        int infoWidth = layout.infoWidth;
+        int spacing = layout.spacing;
+        int boardWidth = layout.boardWidth;
+        int boardHeight = layout.boardHeight;
+        int player1BoardX = layout.player1BoardX;
+        int player2BoardX = layout.player2BoardX;
+        int boardY = layout.boardY;
+        
+        // Debug - log positions to console whenever the chrome is laid out again
         System.out.println("Window: " + width + "x" + height);
         System.out.println("Board1 X: " + player1BoardX + ", Board2 X: " + player2BoardX);
-        System.out.println("Board width: " + boardWidth + ", Required width: " + requiredWidth);
+        System.out.println("Board width: " + boardWidth + ", Required width: " + layout.requiredWidth);
         
         // Draw background with gradient
         GradientPaint gradient = new GradientPaint(0, 0, getThemeBackgroundColor(), 
@@ -1153,68 +1552,37 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Draw Player 1 info panel (left side)
         drawPlayerInfoPanel(g, spacing, 60, infoWidth - spacing, height - 80, 
-                           player1Name, playerTypes[player1Type], score, level, linesCleared, 1, !gameOver);
+                           player1Name, playerTypes[player1Type], view.player1, 1);
         
-        // Draw Player 2 info panel (right side) - ensure it fits
-        int panel2X = Math.min(width - infoWidth, player2BoardX + boardWidth + spacing);
-        drawPlayerInfoPanel(g, panel2X, 60, infoWidth - spacing, height - 80, 
-                           player2Name, playerTypes[player2Type], score2, level2, linesCleared2, 2, !gameOver2);
+        // Draw Player 2 info panel (right side)
+        drawPlayerInfoPanel(g, layout.panel2X, 60, infoWidth - spacing, height - 80, 
+                           player2Name, playerTypes[player2Type], view.player2, 2);
         
         // Draw board backgrounds with borders - ensure Player 2 board is visible
         g.setColor(Color.BLACK);
         g.fillRect(player1BoardX - 2, boardY - 2, boardWidth + 4, boardHeight + 4);
-        
-        // Only draw Player 2 board if it fits in window
-        if (player2BoardX + boardWidth > width - 10) {
-            // Move Player 2 board to fit
-            player2BoardX = width - boardWidth - 10;
+        if (layout.player2Adjusted) {
             System.out.println("Adjusted Board2 X to: " + player2BoardX);
         }
         g.fillRect(player2BoardX - 2, boardY - 2, boardWidth + 4, boardHeight + 4);
         
         // Draw board borders
         g.setColor(getThemeTextColor());
-        g.setStroke(new BasicStroke(2));
+        g.setStroke(BOARD_BORDER_STROKE);
         g.drawRect(player1BoardX - 2, boardY - 2, boardWidth + 4, boardHeight + 4);
         g.drawRect(player2BoardX - 2, boardY - 2, boardWidth + 4, boardHeight + 4);
-        
-        // Draw Player 1 board
-        drawBoardAtPosition(g, player1BoardX, boardY, board, false);
-        if (!gameOver) {
-            if (showGhostPiece) {
-                drawGhostPieceAtPosition(g, player1BoardX, boardY, currentPiece, currentX, currentY, currentRotation, false);
-            }
-            drawCurrentPieceAtPosition(g, player1BoardX, boardY, currentPiece, currentX, currentY, currentRotation, false);
-        }
-        
-        // Draw Player 2 board  
-        drawBoardAtPosition(g, player2BoardX, boardY, board2, true);
-        if (!gameOver2) {
-            if (showGhostPiece) {
-                drawGhostPieceAtPosition(g, player2BoardX, boardY, currentPiece2, currentX2, currentY2, currentRotation2, true);
-            }
-            drawCurrentPieceAtPosition(g, player2BoardX, boardY, currentPiece2, currentX2, currentY2, currentRotation2, true);
-        }
-        
-        // Draw center divider line (optional, more subtle)
-        int centerX = width / 2;
-        g.setColor(new Color(getThemeTextColor().getRed(), getThemeTextColor().getGreen(), 
-                            getThemeTextColor().getBlue(), 60)); // Semi-transparent
-        g.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{5}, 0));
-        g.drawLine(centerX, 70, centerX, height - 20);
-        
-        // Draw winner message if both games are over
-        if (gameOver && gameOver2) {
-            drawMultiplayerWinner(g);
-        }
     }
     
     private void drawPlayerInfoPanel(Graphics2D g, int x, int y, int width, int height, 
-                                    String playerName, String playerType, int playerScore, 
-                                    int playerLevel, int playerLines, int playerNum, boolean isActive) {
+                                    String playerName, String playerType, GameSnapshot.Player state, int playerNum) {
+        int playerScore = state.score;
+        int playerLevel = state.level;
+        int playerLines = state.lines;
+        boolean isActive = !state.gameOver;
+        
         // Draw panel border
         g.setColor(isActive ? Color.GREEN : Color.RED);
-        g.setStroke(new BasicStroke(3));
+        g.setStroke(PANEL_BORDER_STROKE);
         g.drawRect(x, y, width, height);
         
         // Draw panel background
@@ -1322,8 +1690,7 @@ public class TetrisGame extends JFrame implements KeyListener {
             g.drawString("Next Piece:", x + 10, textY);
             
             // Draw mini next piece
-            int nextPiece = (playerNum == 1) ? TetrisGame.this.nextPiece : nextPiece2;
-            drawMiniPiece(g, x + 10, textY + 5, nextPiece);
+            drawMiniPiece(g, x + 10, textY + 5, state.nextPiece);
         }
     }
     
@@ -1343,54 +1710,21 @@ public class TetrisGame extends JFrame implements KeyListener {
         }
     }
     
-    private void drawGhostPieceAtPosition(Graphics2D g, int offsetX, int offsetY, 
-                                        int pieceType, int pieceX, int pieceY, int rotation, boolean isPlayer2) {
-        // Find ghost position (lowest possible position)
-        int ghostY = pieceY;
-        int[][] gameBoard = isPlayer2 ? board2 : board;
-        
-        while (canMoveGeneral(pieceX, ghostY + 1, rotation, pieceType, gameBoard)) {
-            ghostY++;
-        }
-        
-        // Draw ghost piece
-        int[][] piece = rotatePiece(PIECES[pieceType], rotation);
-        g.setColor(new Color(200, 200, 200, 100)); // Transparent gray
+    private void drawGhostPieceAtPosition(Graphics2D g, int offsetX, int offsetY, GameSnapshot.Player state) {
+        // Draw ghost piece at the lowest possible position
+        PieceTable.Orientation piece = PIECE_TABLE.get(state.piece, state.rotation);
+        Image ghostTile = blockSprites.ghost();
         
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int drawX = offsetX + (pieceX + px) * BLOCK_SIZE;
-                    int drawY = offsetY + (ghostY + py) * BLOCK_SIZE;
-                    g.fillRect(drawX + 1, drawY + 1, BLOCK_SIZE - 2, BLOCK_SIZE - 2);
-                    g.drawRect(drawX, drawY, BLOCK_SIZE - 1, BLOCK_SIZE - 1);
-                }
-            }
+        for (int i = 0; i < piece.cellX.length; i++) {
+            int drawX = offsetX + (state.x + piece.cellX[i]) * BLOCK_SIZE;
+            int drawY = offsetY + (state.ghostY + piece.cellY[i]) * BLOCK_SIZE;
+            g.drawImage(ghostTile, drawX, drawY, null);
         }
     }
     
-    private boolean canMoveGeneral(int x, int y, int rotation, int pieceType, int[][] gameBoard) {
-        int[][] piece = rotatePiece(PIECES[pieceType], rotation);
-        
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int newX = x + px;
-                    int newY = y + py;
-                    
-                    // Check boundaries
-                    if (newX < 0 || newX >= BOARD_WIDTH || newY >= BOARD_HEIGHT) {
-                        return false;
-                    }
-                    
-                    // Check collision with existing pieces
-                    if (newY >= 0 && gameBoard[newY][newX] != 0) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+    private boolean canMoveGeneral(int x, int y, int rotation, int pieceType, BitBoard gameBoard) {
+        PieceTable.Orientation piece = PIECE_TABLE.get(pieceType, rotation);
+        return !gameBoard.collides(piece.rowMasks, piece.width, x, y);
     }
 
     // Try to rotate with simple left/right kicks. Works for both players.
@@ -1401,150 +1735,69 @@ public class TetrisGame extends JFrame implements KeyListener {
         int y      = isPlayer2 ? currentY2 : currentY;
         int pieceIndex = isPlayer2 ? currentPiece2 : currentPiece;
 
-        // If it already works in place, do it.
-        boolean can = isPlayer2 ? canMove2(x, y, newRot) : canMove(x, y, newRot);
-        if (can) {
-            if (isPlayer2) currentRotation2 = newRot; else currentRotation = newRot;
-            return true;
+        int dx = TetrisEngine.rotationKick(isPlayer2 ? bitBoard2 : bitBoard, pieceIndex, newRot, x, y);
+        if (dx == TetrisEngine.NO_KICK) {
+            return false; // still blocked
         }
 
-        // We'll try a range of kicks and auto-clamp them to the board if needed.
-        int[][] rotated = rotatePiece(PIECES[pieceIndex], newRot);
-        int pieceW = rotated[0].length;
-
-        // Try offsets in a sensible order: small left, small right, then bigger.
-        int[] baseKicks = { -1, +1, -2, +2, -3, +3 };
-
-        // Keep track to avoid retrying the same dx after clamping
-        java.util.HashSet<Integer> tried = new java.util.HashSet<>();
-
-        for (int baseDx : baseKicks) {
-            int dx = baseDx;
-
-            // Clamp against left wall
-            if (x + dx < 0) {
-                dx = -x; // shift just enough to stay inside
-            }
-            // Clamp against right wall
-            if (x + dx + pieceW > BOARD_WIDTH) {
-                dx = BOARD_WIDTH - pieceW - x; // pull left just enough
-            }
+        if (isPlayer2) { currentX2 += dx; currentRotation2 = newRot; }
+        else           { currentX  += dx; currentRotation  = newRot; }
+        return true;
+    }
 
-            // Skip duplicates created by clamping
-            if (!tried.add(dx)) continue;
+    // Apply one planned input (AI or server path) to a player's piece. No drop points are awarded.
+    private void applyInput(TetrisEngine.Input input, boolean isPlayer2) {
+        BitBoard gameBoard = isPlayer2 ? bitBoard2 : bitBoard;
+        int pieceIndex = isPlayer2 ? currentPiece2 : currentPiece;
+        int x          = isPlayer2 ? currentX2 : currentX;
+        int y          = isPlayer2 ? currentY2 : currentY;
+        int rotation   = isPlayer2 ? currentRotation2 : currentRotation;
 
-            can = isPlayer2 ? canMove2(x + dx, y, newRot) : canMove(x + dx, y, newRot);
-            if (can) {
-                if (isPlayer2) { currentX2 += dx; currentRotation2 = newRot; }
-                else           { currentX  += dx; currentRotation  = newRot; }
-                return true;
-            }
+        switch (input) {
+            case LEFT:
+                if (canMoveGeneral(x - 1, y, rotation, pieceIndex, gameBoard)) { x--; gravity(isPlayer2).moved(); }
+                break;
+            case RIGHT:
+                if (canMoveGeneral(x + 1, y, rotation, pieceIndex, gameBoard)) { x++; gravity(isPlayer2).moved(); }
+                break;
+            case SOFT_DROP:
+                if (canMoveGeneral(x, y + 1, rotation, pieceIndex, gameBoard)) y++;
+                break;
+            case HARD_DROP:
+                while (canMoveGeneral(x, y + 1, rotation, pieceIndex, gameBoard)) y++;
+                gravity(isPlayer2).hardDropped();
+                break;
+            case ROTATE:
+                if (tryRotateWithKick(isPlayer2)) gravity(isPlayer2).moved();
+                return;
+            default:
+                return;
         }
 
-        return false; // still blocked
+        if (isPlayer2) { currentX2 = x; currentY2 = y; }
+        else           { currentX  = x; currentY  = y; }
     }
     
-    private void drawBoardAtPosition(Graphics2D g, int offsetX, int offsetY, int[][] gameBoard, boolean isPlayer2) {
-        // Enable antialiasing for smoother rendering
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        // Draw board background with subtle gradient
-        GradientPaint bgGradient = new GradientPaint(offsetX, offsetY, Color.BLACK, 
-                                                   offsetX + BOARD_WIDTH * BLOCK_SIZE, 
-                                                   offsetY + BOARD_HEIGHT * BLOCK_SIZE, 
-                                                   new Color(20, 20, 20));
-        g.setPaint(bgGradient);
-        g.fillRect(offsetX, offsetY, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-        
-        // Draw subtle grid
-        g.setColor(new Color(40, 40, 40));
-        g.setStroke(new BasicStroke(0.5f));
-        for (int x = 0; x <= BOARD_WIDTH; x++) {
-            g.drawLine(offsetX + x * BLOCK_SIZE, offsetY, 
-                      offsetX + x * BLOCK_SIZE, offsetY + BOARD_HEIGHT * BLOCK_SIZE);
-        }
-        for (int y = 0; y <= BOARD_HEIGHT; y++) {
-            g.drawLine(offsetX, offsetY + y * BLOCK_SIZE, 
-                      offsetX + BOARD_WIDTH * BLOCK_SIZE, offsetY + y * BLOCK_SIZE);
-        }
-        
-        // Reset stroke
-        g.setStroke(new BasicStroke(1.0f));
-        
-        // Draw placed pieces with 3D effect
-        for (int y = 0; y < BOARD_HEIGHT; y++) {
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                if (gameBoard[y][x] != 0) {
-                    Color pieceColor = getPieceColor(gameBoard[y][x] - 1);
-                    int drawX = offsetX + x * BLOCK_SIZE;
-                    int drawY = offsetY + y * BLOCK_SIZE;
-                    
-                    // Fill main block
-                    g.setColor(pieceColor);
-                    g.fillRect(drawX + 1, drawY + 1, BLOCK_SIZE - 2, BLOCK_SIZE - 2);
-                    
-                    // Draw highlight on top and left
-                    g.setColor(pieceColor.brighter());
-                    g.drawLine(drawX + 1, drawY + 1, drawX + BLOCK_SIZE - 2, drawY + 1); // Top
-                    g.drawLine(drawX + 1, drawY + 1, drawX + 1, drawY + BLOCK_SIZE - 2); // Left
-                    
-                    // Draw shadow on bottom and right
-                    g.setColor(pieceColor.darker());
-                    g.drawLine(drawX + BLOCK_SIZE - 2, drawY + 1, drawX + BLOCK_SIZE - 2, drawY + BLOCK_SIZE - 2); // Right
-                    g.drawLine(drawX + 1, drawY + BLOCK_SIZE - 2, drawX + BLOCK_SIZE - 2, drawY + BLOCK_SIZE - 2); // Bottom
-                    
-                    // Draw border
-                    g.setColor(Color.BLACK);
-                    g.drawRect(drawX, drawY, BLOCK_SIZE - 1, BLOCK_SIZE - 1);
-                }
-            }
-        }
+    private void drawBoardAtPosition(Graphics2D g, int offsetX, int offsetY, BoardLayer layer, int[][] gameBoard) {
+        // Gradient, grid and placed pieces with 3D effect, from the cached layer
+        g.drawImage(layer.image(gameBoard), offsetX, offsetY, null);
         
-        // Reset antialiasing
+        // Panels drawn after the board expect antialiasing off
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
     }
     
-    private void drawCurrentPieceAtPosition(Graphics2D g, int offsetX, int offsetY, 
-                                          int piece, int x, int y, int rotation, boolean isPlayer2) {
-        if (isPlayer2 ? gameOver2 : gameOver) return;
+    private void drawCurrentPieceAtPosition(Graphics2D g, int offsetX, int offsetY, GameSnapshot.Player state) {
+        if (state.gameOver) return;
         
-        int[][] pieceShape = rotatePiece(PIECES[piece], rotation);
+        PieceTable.Orientation pieceShape = PIECE_TABLE.get(state.piece, state.rotation);
+        Image tile = blockSprites.bevelled(state.piece);
+        int fallOffset = fallOffset(state);
         
-        // Enable antialiasing for smoother rendering
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        for (int py = 0; py < pieceShape.length; py++) {
-            for (int px = 0; px < pieceShape[py].length; px++) {
-                if (pieceShape[py][px] == 1) {
-                    int drawX = offsetX + (x + px) * BLOCK_SIZE;
-                    int drawY = offsetY + (y + py) * BLOCK_SIZE;
-                    
-                    // Draw piece block with gradient effect
-                    Color pieceColor = getPieceColor(piece);
-                    
-                    // Fill main block
-                    g.setColor(pieceColor);
-                    g.fillRect(drawX + 1, drawY + 1, BLOCK_SIZE - 2, BLOCK_SIZE - 2);
-                    
-                    // Draw highlight on top and left
-                    g.setColor(pieceColor.brighter());
-                    g.drawLine(drawX + 1, drawY + 1, drawX + BLOCK_SIZE - 2, drawY + 1); // Top
-                    g.drawLine(drawX + 1, drawY + 1, drawX + 1, drawY + BLOCK_SIZE - 2); // Left
-                    
-                    // Draw shadow on bottom and right
-                    g.setColor(pieceColor.darker());
-                    g.drawLine(drawX + BLOCK_SIZE - 2, drawY + 1, drawX + BLOCK_SIZE - 2, drawY + BLOCK_SIZE - 2); // Right
-                    g.drawLine(drawX + 1, drawY + BLOCK_SIZE - 2, drawX + BLOCK_SIZE - 2, drawY + BLOCK_SIZE - 2); // Bottom
-                    
-                    // Draw border
-                    g.setColor(Color.BLACK);
-                    g.drawRect(drawX, drawY, BLOCK_SIZE - 1, BLOCK_SIZE - 1);
-                }
-            }
+        for (int i = 0; i < pieceShape.cellX.length; i++) {
+            int drawX = offsetX + (state.x + pieceShape.cellX[i]) * BLOCK_SIZE;
+            int drawY = offsetY + (state.y + pieceShape.cellY[i]) * BLOCK_SIZE + fallOffset;
+            g.drawImage(tile, drawX, drawY, null);
         }
-        
-        // Reset antialiasing
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
     }
     
     private void drawPlayerInfo(Graphics2D g, int x, int y, String name, 
@@ -1558,24 +1811,27 @@ public class TetrisGame extends JFrame implements KeyListener {
         g.drawString("Lines: " + playerLines, x, y + 60);
     }
     
-    private void drawMultiplayerWinner(Graphics2D g) {
+    private void drawMultiplayerWinner(Graphics2D g, GameSnapshot view) {
+        GameSnapshot.Player p1 = view.player1;
+        GameSnapshot.Player p2 = view.player2;
+        
         // Draw semi-transparent overlay
         g.setColor(new Color(0, 0, 0, 180));
         g.fillRect(0, 0, getWidth(), getHeight());
         
         // Determine winner
         String winnerText;
-        if (!gameOver && gameOver2) {
+        if (!p1.gameOver && p2.gameOver) {
             winnerText = player1Name + " WINS!";
             g.setColor(Color.GREEN);
-        } else if (gameOver && !gameOver2) {
+        } else if (p1.gameOver && !p2.gameOver) {
             winnerText = player2Name + " WINS!";
             g.setColor(Color.GREEN);
         } else {
-            if (score > score2) {
+            if (p1.score > p2.score) {
                 winnerText = player1Name + " WINS!";
                 g.setColor(Color.GREEN);
-            } else if (score2 > score) {
+            } else if (p2.score > p1.score) {
                 winnerText = player2Name + " WINS!";
                 g.setColor(Color.GREEN);
             } else {
@@ -1628,67 +1884,36 @@ public class TetrisGame extends JFrame implements KeyListener {
         }
     }
     
-    private void drawBoard(Graphics2D g) {
-        // Draw placed pieces
-        for (int y = 0; y < BOARD_HEIGHT; y++) {
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                if (board[y][x] != 0) {
-                    g.setColor(COLORS[(board[y][x] - 1) % COLORS.length]);
-                    g.fillRect(x * BLOCK_SIZE + 10, y * BLOCK_SIZE + 50, BLOCK_SIZE, BLOCK_SIZE);
-                    g.setColor(Color.BLACK);
-                    g.drawRect(x * BLOCK_SIZE + 10, y * BLOCK_SIZE + 50, BLOCK_SIZE, BLOCK_SIZE);
-                }
-            }
-        }
-        
-        // Draw grid
-        g.setColor(Color.GRAY);
-        for (int x = 0; x <= BOARD_WIDTH; x++) {
-            g.drawLine(x * BLOCK_SIZE + 10, 50, x * BLOCK_SIZE + 10, BOARD_HEIGHT * BLOCK_SIZE + 50);
-        }
-        for (int y = 0; y <= BOARD_HEIGHT; y++) {
-            g.drawLine(10, y * BLOCK_SIZE + 50, BOARD_WIDTH * BLOCK_SIZE + 10, y * BLOCK_SIZE + 50);
-        }
+    private void drawBoard(Graphics2D g, GameSnapshot.Player state) {
+        // Placed pieces and grid, from the cached layer
+        boardOrigins[0].setLocation(BOARD_X, BOARD_Y);
+        g.drawImage(boardLayer.image(state.cells), BOARD_X, BOARD_Y, null);
     }
     
-    private void drawCurrentPiece(Graphics2D g) {
-        int[][] piece = rotatePiece(PIECES[currentPiece], currentRotation);
-        g.setColor(COLORS[currentPiece % COLORS.length]);
+    private void drawCurrentPiece(Graphics2D g, GameSnapshot view) {
+        GameSnapshot.Player state = view.player1;
+        PieceTable.Orientation piece = PIECE_TABLE.get(state.piece, state.rotation);
+        Image tile = blockSprites.flat(state.piece);
+        int fallOffset = fallOffset(state);
         
-        for (int py = 0; py < piece.length; py++) {
-            for (int px = 0; px < piece[py].length; px++) {
-                if (piece[py][px] == 1) {
-                    int drawX = (currentX + px) * BLOCK_SIZE + 10;
-                    int drawY = (currentY + py) * BLOCK_SIZE + 50;
-                    g.fillRect(drawX, drawY, BLOCK_SIZE, BLOCK_SIZE);
-                    g.setColor(Color.BLACK);
-                    g.drawRect(drawX, drawY, BLOCK_SIZE, BLOCK_SIZE);
-                    g.setColor(COLORS[currentPiece % COLORS.length]);
-                }
-            }
+        for (int i = 0; i < piece.cellX.length; i++) {
+            int drawX = (state.x + piece.cellX[i]) * BLOCK_SIZE + BOARD_X;
+            int drawY = (state.y + piece.cellY[i]) * BLOCK_SIZE + BOARD_Y + fallOffset;
+            g.drawImage(tile, drawX, drawY, null);
         }
     }
     
-    private void drawGhostPiece(Graphics2D g) {
-        int ghostY = currentY;
-        while (canMove(currentX, ghostY + 1, currentRotation)) {
-            ghostY++;
-        }
+    private void drawGhostPiece(Graphics2D g, GameSnapshot.Player state) {
+        int ghostY = state.ghostY;
         
-        if (ghostY != currentY) {
-            int[][] piece = rotatePiece(PIECES[currentPiece], currentRotation);
-            g.setColor(new Color(COLORS[currentPiece % COLORS.length].getRed(),
-                                COLORS[currentPiece % COLORS.length].getGreen(),
-                                COLORS[currentPiece % COLORS.length].getBlue(), 100));
+        if (ghostY != state.y) {
+            PieceTable.Orientation piece = PIECE_TABLE.get(state.piece, state.rotation);
+            Image tile = blockSprites.flatGhost(state.piece);
             
-            for (int py = 0; py < piece.length; py++) {
-                for (int px = 0; px < piece[py].length; px++) {
-                    if (piece[py][px] == 1) {
-                        int drawX = (currentX + px) * BLOCK_SIZE + 10;
-                        int drawY = (ghostY + py) * BLOCK_SIZE + 50;
-                        g.fillRect(drawX, drawY, BLOCK_SIZE, BLOCK_SIZE);
-                    }
-                }
+            for (int i = 0; i < piece.cellX.length; i++) {
+                int drawX = (state.x + piece.cellX[i]) * BLOCK_SIZE + BOARD_X;
+                int drawY = (ghostY + piece.cellY[i]) * BLOCK_SIZE + BOARD_Y;
+                g.drawImage(tile, drawX, drawY, null);
             }
         }
     }
@@ -1698,7 +1923,47 @@ public class TetrisGame extends JFrame implements KeyListener {
         // Keeping empty to avoid breaking references
     }
     
-    private void drawUI(Graphics2D g) {
+    private void drawUI(Graphics2D g, GameSnapshot view) {
+        drawChrome(g, view, sidePanelX(), chrome -> drawUIPanels(chrome, view.player1));
+        drawStateOverlays(g, view);
+    }
+    
+    private void drawOnlineUI(Graphics2D g, GameSnapshot view) {
+        drawChrome(g, view, sidePanelX(), chrome -> drawOnlinePanels(chrome, view.player1));
+        drawStateOverlays(g, view);
+    }
+    
+    // Left edge of the single-player and online side panels' cached chrome
+    private int sidePanelX() {
+        return BOARD_X + BOARD_WIDTH * BLOCK_SIZE + 1;
+    }
+    
+    // Pause and game over over the board; drawn every frame on top of the pieces
+    private void drawStateOverlays(Graphics2D g, GameSnapshot view) {
+        if (view.paused) {
+            g.setColor(new Color(0, 0, 0, 150));
+            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
+            g.setColor(Color.YELLOW);
+            g.setFont(new Font("Arial", Font.BOLD, 36));
+            FontMetrics fm = g.getFontMetrics();
+            String pauseText = "PAUSED";
+            int pauseX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(pauseText)) / 2;
+            g.drawString(pauseText, pauseX, BOARD_HEIGHT * BLOCK_SIZE / 2);
+        }
+        
+        if (view.player1.gameOver) {
+            g.setColor(new Color(0, 0, 0, 150));
+            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
+            g.setColor(Color.RED);
+            g.setFont(new Font("Arial", Font.BOLD, 36));
+            FontMetrics fm = g.getFontMetrics();
+            String gameOverText = "GAME OVER";
+            int gameOverX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(gameOverText)) / 2;
+            g.drawString(gameOverText, gameOverX, BOARD_HEIGHT * BLOCK_SIZE / 2);
+        }
+    }
+    
+    private void drawUIPanels(Graphics2D g, GameSnapshot.Player state) {
         // Enhanced single player UI layout for large window
         int boardEndX = BOARD_WIDTH * BLOCK_SIZE + 20;
         int rightPanelX = boardEndX + 20;
@@ -1716,9 +1981,9 @@ public class TetrisGame extends JFrame implements KeyListener {
         g.drawString("GAME STATS", rightPanelX + 10, 75);
         
         g.setFont(new Font("Arial", Font.BOLD, 16));
-        g.drawString("Score: " + String.format("%,d", score), rightPanelX + 10, 105);
-        g.drawString("Level: " + level, rightPanelX + 10, 125);
-        g.drawString("Lines: " + linesCleared, rightPanelX + 10, 145);
+        g.drawString("Score: " + String.format("%,d", state.score), rightPanelX + 10, 105);
+        g.drawString("Level: " + state.level, rightPanelX + 10, 125);
+        g.drawString("Lines: " + state.lines, rightPanelX + 10, 145);
         
         // Next piece preview panel
         int nextPieceY = 190;
@@ -1732,20 +1997,16 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Draw next piece preview (centered in panel)
         if (showNextPiece) {
-            int[][] piece = PIECES[nextPiece];
-            Color pieceColor = COLORS[nextPiece % COLORS.length];
+            int[][] piece = PIECES[state.nextPiece];
+            Image tile = previewSprites.flat(state.nextPiece);
             
             int previewX = rightPanelX + rightPanelWidth/2 - 40;
             int previewY = nextPieceY + 40;
             
-            g.setColor(pieceColor);
             for (int py = 0; py < piece.length; py++) {
                 for (int px = 0; px < piece[py].length; px++) {
                     if (piece[py][px] == 1) {
-                        g.fillRect(previewX + px * 20, previewY + py * 20, 20, 20);
-                        g.setColor(Color.BLACK);
-                        g.drawRect(previewX + px * 20, previewY + py * 20, 20, 20);
-                        g.setColor(pieceColor);
+                        g.drawImage(tile, previewX + px * PREVIEW_BLOCK_SIZE, previewY + py * PREVIEW_BLOCK_SIZE, null);
                     }
                 }
             }
@@ -1784,32 +2045,9 @@ public class TetrisGame extends JFrame implements KeyListener {
         g.drawString("🔊 Sound: " + (soundEnabled ? "ON" : "OFF"), rightPanelX + 10, statusY + 45);
         g.setColor(musicEnabled ? new Color(0, 150, 0) : Color.RED);
         g.drawString("🎵 Music: " + (musicEnabled ? "ON" : "OFF"), rightPanelX + 10, statusY + 65);
-        
-        // Game state overlays
-        if (paused) {
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-            g.setColor(Color.YELLOW);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            FontMetrics fm = g.getFontMetrics();
-            String pauseText = "PAUSED";
-            int pauseX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(pauseText)) / 2;
-            g.drawString(pauseText, pauseX, BOARD_HEIGHT * BLOCK_SIZE / 2);
-        }
-        
-        if (gameOver) {
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-            g.setColor(Color.RED);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            FontMetrics fm = g.getFontMetrics();
-            String gameOverText = "GAME OVER";
-            int gameOverX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(gameOverText)) / 2;
-            g.drawString(gameOverText, gameOverX, BOARD_HEIGHT * BLOCK_SIZE / 2);
-        }
     }
     
-    private void drawOnlineUI(Graphics2D g) {
+    private void drawOnlinePanels(Graphics2D g, GameSnapshot.Player state) {
         // Enhanced online mode UI layout
         int boardEndX = BOARD_WIDTH * BLOCK_SIZE + 20;
         int rightPanelX = boardEndX + 20;
@@ -1841,9 +2079,9 @@ public class TetrisGame extends JFrame implements KeyListener {
         g.drawString("GAME STATS", rightPanelX + 10, 155);
         
         g.setFont(new Font("Arial", Font.BOLD, 16));
-        g.drawString("Score: " + String.format("%,d", score), rightPanelX + 10, 185);
-        g.drawString("Level: " + level, rightPanelX + 10, 205);
-        g.drawString("Lines: " + linesCleared, rightPanelX + 10, 225);
+        g.drawString("Score: " + String.format("%,d", state.score), rightPanelX + 10, 185);
+        g.drawString("Level: " + state.level, rightPanelX + 10, 205);
+        g.drawString("Lines: " + state.lines, rightPanelX + 10, 225);
         
         // Next piece preview panel
         int nextPieceY = 270;
@@ -1857,20 +2095,16 @@ public class TetrisGame extends JFrame implements KeyListener {
         
         // Draw next piece preview
         if (showNextPiece) {
-            int[][] piece = PIECES[nextPiece];
-            Color pieceColor = COLORS[nextPiece % COLORS.length];
+            int[][] piece = PIECES[state.nextPiece];
+            Image tile = previewSprites.flat(state.nextPiece);
             
             int previewX = rightPanelX + rightPanelWidth/2 - 40;
             int previewY = nextPieceY + 40;
             
-            g.setColor(pieceColor);
             for (int py = 0; py < piece.length; py++) {
                 for (int px = 0; px < piece[py].length; px++) {
                     if (piece[py][px] == 1) {
-                        g.fillRect(previewX + px * 20, previewY + py * 20, 20, 20);
-                        g.setColor(Color.BLACK);
-                        g.drawRect(previewX + px * 20, previewY + py * 20, 20, 20);
-                        g.setColor(pieceColor);
+                        g.drawImage(tile, previewX + px * PREVIEW_BLOCK_SIZE, previewY + py * PREVIEW_BLOCK_SIZE, null);
                     }
                 }
             }
@@ -1896,39 +2130,16 @@ public class TetrisGame extends JFrame implements KeyListener {
         g.setColor(new Color(240, 240, 240, 200));
         g.fillRoundRect(rightPanelX, controlsY, rightPanelWidth, controlsHeight, 15, 15);
         g.setColor(Color.BLACK);
-        g.drawRoundRect(rightPanelX, controlsY, rightPanelWidth, controlsHeight, 15, 15);
-        
-        g.setFont(new Font("Arial", Font.BOLD, 16));
-        g.drawString("CONTROLS", rightPanelX + 10, controlsY + 25);
-        
-        g.setFont(new Font("Arial", Font.PLAIN, 12));
-        g.drawString("🎮 Movement: WASD", rightPanelX + 10, controlsY + 50);
-        g.drawString("⏸️ Pause: P", rightPanelX + 10, controlsY + 70);
-        g.drawString("🎵 Music: M", rightPanelX + 10, controlsY + 90);
-        g.drawString("🔌 Disconnect: ESC", rightPanelX + 10, controlsY + 110);
-        
-        // Game state overlays
-        if (paused) {
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-            g.setColor(Color.YELLOW);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            FontMetrics fm = g.getFontMetrics();
-            String pauseText = "PAUSED";
-            int pauseX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(pauseText)) / 2;
-            g.drawString(pauseText, pauseX, BOARD_HEIGHT * BLOCK_SIZE / 2);
-        }
-        
-        if (gameOver) {
-            g.setColor(new Color(0, 0, 0, 150));
-            g.fillRect(0, 0, BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-            g.setColor(Color.RED);
-            g.setFont(new Font("Arial", Font.BOLD, 36));
-            FontMetrics fm = g.getFontMetrics();
-            String gameOverText = "GAME OVER";
-            int gameOverX = (BOARD_WIDTH * BLOCK_SIZE - fm.stringWidth(gameOverText)) / 2;
-            g.drawString(gameOverText, gameOverX, BOARD_HEIGHT * BLOCK_SIZE / 2);
-        }
+        g.drawRoundRect(rightPanelX, controlsY, rightPanelWidth, controlsHeight, 15, 15);
+        
+        g.setFont(new Font("Arial", Font.BOLD, 16));
+        g.drawString("CONTROLS", rightPanelX + 10, controlsY + 25);
+        
+        g.setFont(new Font("Arial", Font.PLAIN, 12));
+        g.drawString("🎮 Movement: WASD", rightPanelX + 10, controlsY + 50);
+        g.drawString("⏸️ Pause: P", rightPanelX + 10, controlsY + 70);
+        g.drawString("🎵 Music: M", rightPanelX + 10, controlsY + 90);
+        g.drawString("🔌 Disconnect: ESC", rightPanelX + 10, controlsY + 110);
     }
     
     // Key controls
@@ -2162,7 +2373,7 @@ public class TetrisGame extends JFrame implements KeyListener {
             case KeyEvent.VK_P:          // Pause/Resume
                 paused = !paused;
                 if (paused) {
-                    gameTimer.stop();
+                    simulation.stop();
                     playSound("pause");
                     // Switch to pause music
                     if (musicEnabled && soundManager != null) {
@@ -2170,7 +2381,7 @@ public class TetrisGame extends JFrame implements KeyListener {
                         soundManager.playBackgroundMusic("pause", musicVolume);
                     }
                 } else {
-                    gameTimer.start();
+                    resumeSimulation();
                     playSound("resume");
                     // Resume game music
                     if (musicEnabled && soundManager != null) {
@@ -2181,30 +2392,71 @@ public class TetrisGame extends JFrame implements KeyListener {
                 break;
         }
         
-        repaint();
+        repaintPlayfield();
     }
     
     private void restartGame() {
-        gameTimer.stop();
+        simulation.stop();
         initializeGame();
-        fallSpeed = 500;
-        gameTimer = new javax.swing.Timer(fallSpeed, e -> gameStep());
-        gameTimer.start();
+        startSimulation();
         repaint();
     }
     
     private void handleMultiplayerControls(KeyEvent e) {
         switch (e.getKeyCode()) {
+            // Piece controls: P1 WASD, P2 arrows, applied on the simulation thread
+            case KeyEvent.VK_A:
+            case KeyEvent.VK_D:
+            case KeyEvent.VK_S:
+            case KeyEvent.VK_W:
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_DOWN:
+            case KeyEvent.VK_UP:
+                int keyCode = e.getKeyCode();
+                runOnSimulation(() -> applyMultiplayerKey(keyCode));
+                break;
+                
+            // Game controls
+            case KeyEvent.VK_ESCAPE:
+                if (gameOver && gameOver2) {
+                    returnToHomeScreen();
+                } else {
+                    int result = JOptionPane.showConfirmDialog(
+                            this,
+                            "Quit multiplayer game and return to menu?",
+                            "Confirm Quit",
+                            JOptionPane.YES_NO_OPTION,
+                            JOptionPane.QUESTION_MESSAGE
+                    );
+                    if (result == JOptionPane.YES_OPTION) {
+                        returnToHomeScreen();
+                    }
+                }
+                break;
+                
+            case KeyEvent.VK_R:
+                if (gameOver && gameOver2) {
+                    restartMultiplayerGame();
+                }
+                break;
+        }
+    }
+    
+    private void applyMultiplayerKey(int keyCode) {
+        switch (keyCode) {
             // Player 1 Controls (WASD only)
             case KeyEvent.VK_A:
                 if (!gameOver && canMove(currentX - 1, currentY, currentRotation)) {
                     currentX--;
+                    gravity(false).moved();
                     playSound("move");
                 }
                 break;
             case KeyEvent.VK_D:
                 if (!gameOver && canMove(currentX + 1, currentY, currentRotation)) {
                     currentX++;
+                    gravity(false).moved();
                     playSound("move");
                 }
                 break;
@@ -2217,6 +2469,7 @@ public class TetrisGame extends JFrame implements KeyListener {
                 break;
             case KeyEvent.VK_W:
                 if (!gameOver && tryRotateWithKick(false)) {
+                    gravity(false).moved();
                     playSound("rotate");
                 }
                 break;
@@ -2225,12 +2478,14 @@ public class TetrisGame extends JFrame implements KeyListener {
             case KeyEvent.VK_LEFT:
                 if (!gameOver2 && canMove2(currentX2 - 1, currentY2, currentRotation2)) {
                     currentX2--;
+                    gravity(true).moved();
                     playSound("move");
                 }
                 break;
             case KeyEvent.VK_RIGHT:
                 if (!gameOver2 && canMove2(currentX2 + 1, currentY2, currentRotation2)) {
                     currentX2++;
+                    gravity(true).moved();
                     playSound("move");
                 }
                 break;
@@ -2246,70 +2501,24 @@ public class TetrisGame extends JFrame implements KeyListener {
                     int newRotation2 = (currentRotation2 + 1) % 4;
                     if (canMove2(currentX2, currentY2, newRotation2)) {
                         currentRotation2 = newRotation2;
+                        gravity(true).moved();
                         playSound("rotate");
                     }
                 }
                 break;
-                
-            // Game controls
-            case KeyEvent.VK_ESCAPE:
-                if (gameOver && gameOver2) {
-                    returnToHomeScreen();
-                } else {
-                    int result = JOptionPane.showConfirmDialog(
-                            this,
-                            "Quit multiplayer game and return to menu?",
-                            "Confirm Quit",
-                            JOptionPane.YES_NO_OPTION,
-                            JOptionPane.QUESTION_MESSAGE
-                    );
-                    if (result == JOptionPane.YES_OPTION) {
-                        returnToHomeScreen();
-                    }
-                }
-                break;
-                
-            case KeyEvent.VK_R:
-                if (gameOver && gameOver2) {
-                    restartMultiplayerGame();
-                }
-                break;
         }
     }
     
     private void handleSinglePlayerControls(KeyEvent e) {
         switch (e.getKeyCode()) {
-            // Movement controls (WASD only)
+            // Movement controls (WASD only), applied on the simulation thread
             case KeyEvent.VK_A:
-                if (canMove(currentX - 1, currentY, currentRotation)) {
-                    currentX--;
-                    playSound("move");
-                }
-                break;
             case KeyEvent.VK_D:
-                if (canMove(currentX + 1, currentY, currentRotation)) {
-                    currentX++;
-                    playSound("move");
-                }
-                break;
             case KeyEvent.VK_S:
-                if (canMove(currentX, currentY + 1, currentRotation)) {
-                    currentY++;
-                    score += 1;
-                    playSound("move");
-                }
-                break;
             case KeyEvent.VK_W:
-                if (tryRotateWithKick(false)) {
-                    playSound("rotate");
-                }
-                break;
-            case KeyEvent.VK_SPACE:      // Hard drop (Space)
-                while (canMove(currentX, currentY + 1, currentRotation)) {
-                    currentY++;
-                    score += 2;
-                }
-                playSound("drop");
+            case KeyEvent.VK_SPACE:
+                int keyCode = e.getKeyCode();
+                runOnSimulation(() -> applySinglePlayerKey(keyCode));
                 break;
                 
             // Game controls
@@ -2336,6 +2545,7 @@ public class TetrisGame extends JFrame implements KeyListener {
                             null, options, options[0]);
                         
                         if (choice == 0) { // Save & Quit
+                            simulation.stop(); // save a state no tick is halfway through
                             saveCurrentGame();
                             returnToHomeScreen();
                         } else if (choice == 1) { // Quit without Saving
@@ -2356,12 +2566,52 @@ public class TetrisGame extends JFrame implements KeyListener {
         }
     }
     
+    private void applySinglePlayerKey(int keyCode) {
+        if (gameOver) return;
+        
+        switch (keyCode) {
+            case KeyEvent.VK_A:
+                if (canMove(currentX - 1, currentY, currentRotation)) {
+                    currentX--;
+                    gravity(false).moved();
+                    playSound("move");
+                }
+                break;
+            case KeyEvent.VK_D:
+                if (canMove(currentX + 1, currentY, currentRotation)) {
+                    currentX++;
+                    gravity(false).moved();
+                    playSound("move");
+                }
+                break;
+            case KeyEvent.VK_S:
+                if (canMove(currentX, currentY + 1, currentRotation)) {
+                    currentY++;
+                    score += 1;
+                    playSound("move");
+                }
+                break;
+            case KeyEvent.VK_W:
+                if (tryRotateWithKick(false)) {
+                    gravity(false).moved();
+                    playSound("rotate");
+                }
+                break;
+            case KeyEvent.VK_SPACE:      // Hard drop (Space)
+                while (canMove(currentX, currentY + 1, currentRotation)) {
+                    currentY++;
+                    score += 2;
+                }
+                gravity(false).hardDropped();
+                playSound("drop");
+                break;
+        }
+    }
+    
     private void restartMultiplayerGame() {
-        gameTimer.stop();
+        simulation.stop();
         initializeMultiplayerGame();
-        fallSpeed = 500;
-        gameTimer = new javax.swing.Timer(fallSpeed, e -> multiplayerGameStep());
-        gameTimer.start();
+        startSimulation();
         repaint();
     }
     
@@ -2374,13 +2624,9 @@ public class TetrisGame extends JFrame implements KeyListener {
         player2Type = 0; // Reset player 2 type as well
         
         // Keep consistent window size - no resize needed
+        simulation.stop();
         initializeGame();
-        fallSpeed = 500;
-        if (gameTimer != null) {
-            gameTimer.stop();
-        }
-        gameTimer = new javax.swing.Timer(fallSpeed, e -> gameStep());
-        gameTimer.start();
+        startSimulation();
         
         // Start game background music
         if (musicEnabled && soundManager != null) {
@@ -2392,18 +2638,14 @@ public class TetrisGame extends JFrame implements KeyListener {
     }
     
     private void startMultiplayerGame() {
+        simulation.stop();
         showHomeScreen = false;
         initializeMultiplayerGame();
         
         // Keep consistent large window size - no resize needed
         centerWindow(); // Just center, don't resize
         
-        fallSpeed = 500;
-        if (gameTimer != null) {
-            gameTimer.stop();
-        }
-        gameTimer = new javax.swing.Timer(fallSpeed, e -> multiplayerGameStep());
-        gameTimer.start();
+        startSimulation();
         
         // Start game background music
         if (musicEnabled && soundManager != null) {
@@ -2417,6 +2659,7 @@ public class TetrisGame extends JFrame implements KeyListener {
     private void startOnlineMode() {
         // Try to connect to TetrisServer
         if (tetrisServer.connect()) {
+            simulation.stop();
             serverConnected = true;
             showHomeScreen = false;
             isOnlineMode = true;
@@ -2428,12 +2671,7 @@ public class TetrisGame extends JFrame implements KeyListener {
             // Keep consistent large window size
             centerWindow();
             
-            fallSpeed = 500;
-            if (gameTimer != null) {
-                gameTimer.stop();
-            }
-            gameTimer = new javax.swing.Timer(fallSpeed, e -> onlineGameStep());
-            gameTimer.start();
+            startSimulation();
             
             // Start game background music
             if (musicEnabled && soundManager != null) {
@@ -2456,91 +2694,91 @@ public class TetrisGame extends JFrame implements KeyListener {
     private void onlineGameStep() {
         if (showHomeScreen || showConfigScreen || gameOver || paused) return;
         
-        // Get server recommendation if connected and enough time has passed
+        // Get server recommendation if connected and enough time has passed, checked once per row of gravity
+        int rows = gravityRows(false);
         long currentTime = System.currentTimeMillis();
-        if (serverConnected && currentTime - lastServerMoveTime > serverMoveDelay) {
+        if (rows > 0 && serverConnected && currentTime - lastServerMoveTime > serverMoveDelay) {
             requestServerMove();
             lastServerMoveTime = currentTime;
         }
         
         // Normal game step
-        if (canMove(currentX, currentY + 1, currentRotation)) {
-            currentY++;
-        } else {
+        if (settlePiece(false, rows)) {
             // Place piece on board
             placePiece();
+            int[] completedRows = bitBoard.fullRowIndices();
             
             // Check for completed lines
             clearLines();
             
+            // The server session only needs the locked piece, not the whole board
+            if (serverConnected) {
+                tetrisServer.notePlacement(currentPiece, currentRotation, currentX, currentY, completedRows);
+            }
+            
             // Spawn next piece
             spawnNextPiece();
             
             // Check game over
             if (!canMove(currentX, currentY, currentRotation)) {
                 gameOver = true;
-                gameTimer.stop();
+                simulation.stop();
                 if (serverConnected) {
                     tetrisServer.disconnect();
                     serverConnected = false;
                 }
-                showOnlineGameOverDialog();
+                SwingUtilities.invokeLater(this::showOnlineGameOverDialog);
             }
         }
-        
-        repaint();
     }
     
     private void requestServerMove() {
         if (!serverConnected) return;
         
-        try {
-            // Create PurGame object with current game state
-            TetrisServer.PurGame gameState = new TetrisServer.PurGame(
-                BOARD_WIDTH,
-                BOARD_HEIGHT, 
-                board,
-                currentPiece,
-                nextPiece
-            );
-            
-            // Get optimal move from server
-            TetrisServer.OpMove optimalMove = tetrisServer.getOptimalMove(gameState);
-            
-            if (optimalMove != null) {
-                // Apply server's recommendation
-                applyServerMove(optimalMove);
-            }
-        } catch (Exception e) {
-            System.err.println("❌ Error requesting server move: " + e.getMessage());
-            serverConnected = false;
-        }
+        // Create PurGame object with current game state
+        TetrisServer.PurGame gameState = new TetrisServer.PurGame(
+            BOARD_WIDTH,
+            BOARD_HEIGHT, 
+            board,
+            currentPiece,
+            nextPiece
+        );
+        
+        // Ask off the simulation thread; the reply comes back to it only if it is still for the falling piece
+        long requestedFor = pieceSequence;
+        tetrisServer.getOptimalMoveAsync(gameState, requestedFor).whenComplete((optimalMove, error) ->
+            SwingUtilities.invokeLater(() -> runOnSimulation(() -> {
+                if (error != null) {
+                    // A timed-out reply is just late; the connection stays unless it actually failed
+                    System.err.println("❌ Error requesting server move: " + error);
+                    serverConnected = serverConnected && tetrisServer.isConnected();
+                    return;
+                }
+                if (optimalMove != null && serverConnected && isOnlineMode && !gameOver
+                        && requestedFor == pieceSequence) {
+                    // Apply server's recommendation
+                    applyServerMove(optimalMove);
+                }
+            })));
     }
     
     private void applyServerMove(TetrisServer.OpMove move) {
-        // Apply optimal rotation
-        int targetRotation = move.opRotate % 4;
-        while (currentRotation != targetRotation) {
-            if (canMove(currentX, currentY, (currentRotation + 1) % 4)) {
-                currentRotation = (currentRotation + 1) % 4;
-            } else {
-                break; // Can't rotate due to collision
-            }
-        }
-        
-        // Move to optimal X position (with boundary checks)
+        int targetRotation = move.opRotate & 3;
         int targetX = Math.max(0, Math.min(BOARD_WIDTH - 1, move.opX));
         
-        if (currentX < targetX) {
-            // Move right
-            while (currentX < targetX && canMove(currentX + 1, currentY, currentRotation)) {
-                currentX++;
-            }
-        } else if (currentX > targetX) {
-            // Move left  
-            while (currentX > targetX && canMove(currentX - 1, currentY, currentRotation)) {
-                currentX--;
-            }
+        // Route through rotations, kicks and slides instead of rotating in place and giving up on a wall
+        PathPlanner.Reachability reachable = serverPathPlanner.reachable(
+            bitBoard, currentPiece, currentX, currentY, currentRotation);
+        int targetY = reachable.dropRow(targetX, targetRotation);
+        TetrisEngine.Input[] path = targetY < 0 ? null : reachable.pathTo(targetX, targetY, targetRotation);
+        if (path == null) {
+            System.out.println("⚠️ Server move x=" + targetX + ", rotation=" + targetRotation + " is not reachable");
+            return;
+        }
+        
+        // Everything but the final hard drop; gravity lands the piece
+        for (int i = 0; i < path.length - 1; i++) {
+            applyInput(path[i], false);
         }
         
         System.out.println("🎯 Applied server move: x=" + currentX + ", rotation=" + currentRotation);
@@ -2583,6 +2821,9 @@ public class TetrisGame extends JFrame implements KeyListener {
     }
     
     private void returnToHomeScreen() {
+        // Stop the game clock before resetting the state it owns
+        simulation.stop();
+        
         // Disconnect from server if connected
         if (serverConnected) {
             tetrisServer.disconnect();
@@ -2604,9 +2845,6 @@ public class TetrisGame extends JFrame implements KeyListener {
         player1Type = 0; // Human
         player2Type = 0; // Human
         
-        if (gameTimer != null) {
-            gameTimer.stop();
-        }
         selectedMenuItem = 0; // Reset to "Play Game"
         
         // Keep consistent large window size
@@ -2869,13 +3107,15 @@ public class TetrisGame extends JFrame implements KeyListener {
         // Make sure the last score update is visible
         repaint();
 
-        if (gameTimer != null) gameTimer.stop();
+        simulation.stop();
 
-        if (isAI) {
-            showMultiplayerAIWinDialog(winnerNum);
-        } else {
-            showMultiplayerPlayerWinDialog(winnerNum);
-        }
+        SwingUtilities.invokeLater(() -> {
+            if (isAI) {
+                showMultiplayerAIWinDialog(winnerNum);
+            } else {
+                showMultiplayerPlayerWinDialog(winnerNum);
+            }
+        });
     }
     
     // Save/Load Configuration functionality
@@ -2885,6 +3125,9 @@ public class TetrisGame extends JFrame implements KeyListener {
             soundEnabled, musicEnabled, (int)musicVolume, (int)effectsVolume, aiWinScore,
             BOARD_WIDTH, BOARD_HEIGHT
         );
+        config.aiEvaluator = aiEvaluator;
+        config.activeRendering = activeRendering;
+        config.renderFps = renderFps;
         
         if (GameData.saveConfig(config)) {
             showMessage("✅ Configuration saved successfully!");
@@ -2912,11 +3155,26 @@ public class TetrisGame extends JFrame implements KeyListener {
         musicVolume = (float)config.musicVolume;
         effectsVolume = (float)config.effectsVolume;
         aiWinScore = config.aiWinScore;
-        
-        // Apply field dimensions if they're different
-        if (BOARD_WIDTH != config.fieldWidth || BOARD_HEIGHT != config.fieldHeight) {
-            BOARD_WIDTH = config.fieldWidth;
-            BOARD_HEIGHT = config.fieldHeight;
+        if (!config.aiEvaluator.equals(aiEvaluator)) {
+            aiEvaluator = config.aiEvaluator;
+            if (aiPlayer1 != null) {
+                // The evaluator is fixed per AI player, so pick up the new one with fresh players
+                aiPlayer1 = new AIPlayer(1);
+                aiPlayer2 = new AIPlayer(2);
+            }
+        }
+        
+        activeRendering = config.activeRendering;
+        renderFps = config.renderFps;
+        updateRenderLoop();
+        
+        // Apply field dimensions if they're different, clamped to what the settings screen allows;
+        // the board's row masks cannot hold more than BitBoard.MAX_WIDTH columns
+        int fieldWidth = Math.max(5, Math.min(Math.min(15, BitBoard.MAX_WIDTH), config.fieldWidth));
+        int fieldHeight = Math.max(15, Math.min(30, config.fieldHeight));
+        if (BOARD_WIDTH != fieldWidth || BOARD_HEIGHT != fieldHeight) {
+            BOARD_WIDTH = fieldWidth;
+            BOARD_HEIGHT = fieldHeight;
             resetGameBoardsWithNewDimensions();
         }
         
@@ -3023,14 +3281,40 @@ public class TetrisGame extends JFrame implements KeyListener {
         private int player;
         private long lastMoveTime = 0;
         private int moveDelay = 200; // Delay between AI moves (milliseconds)
+        // Fork/join search pays off on wide custom fields; narrow boards stay serial.
+        // Boards are scored by the evaluator named in the config
+        private final MoveSearch search = new MoveSearch(Runtime.getRuntime().availableProcessors() > 1, null,
+                new EvalCache(1 << 16), Evaluators.byNameOrDefault(aiEvaluator));
+        // Reachable placements and input paths for the falling piece
+        private final PathPlanner planner = new PathPlanner(16);
+        // The board only changes when a piece locks, so a plan is reused until then
+        private MoveSearch.Move plannedMove;
+        private long plannedFor;
+        private boolean hasPlan = false;
+        // Two-piece lookahead widens its beam up to 16 first placements while time allows.
+        // It runs on this player's search thread with a quarter of the gravity interval, so the tick
+        // never waits for it; the first makeMove after it finishes picks the move up
+        private static final int MAX_LOOKAHEAD_BEAM = 16;
+        private static final long MIN_SEARCH_BUDGET_NANOS = 2_000_000L;
+        private final ThreadPoolExecutor searcher;
+        private Future<MoveSearch.Move> pendingSearch;
+        private long pendingFor;
         
         public AIPlayer(int playerNumber) {
             this.player = playerNumber;
+            // The thread goes away when idle, so a replaced player leaves nothing running
+            searcher = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "ai-search-" + playerNumber);
+                thread.setDaemon(true);
+                return thread;
+            });
+            searcher.allowCoreThreadTimeOut(true);
         }
         
         public void makeMove() {
             long currentTime = System.currentTimeMillis();
-            if (currentTime - lastMoveTime < moveDelay) {
+            // At high levels gravity ticks faster than moveDelay; one input per tick keeps up with it
+            if (currentTime - lastMoveTime < Math.min(moveDelay, gravityMillis() / 2)) {
                 return; // Not time for next move yet
             }
             lastMoveTime = currentTime;
@@ -3042,216 +3326,81 @@ public class TetrisGame extends JFrame implements KeyListener {
             }
         }
         
-        private void makePlayer1Move() {
-            if (gameOver) return;
-            
-            // Get best position for current piece
-            AIMove bestMove = calculateBestMove(board, PIECES[currentPiece], currentPiece);
-            
-            if (bestMove != null) {
-                // Rotate to target rotation
-                while (currentRotation != bestMove.rotation) {
-                    if (canMove(currentX, currentY, (currentRotation + 1) % 4)) {
-                        currentRotation = (currentRotation + 1) % 4;
-                    } else {
-                        break;
-                    }
-                }
-                
-                // Move to target X position
-                if (currentX < bestMove.x && canMove(currentX + 1, currentY, currentRotation)) {
-                    currentX++;
-                } else if (currentX > bestMove.x && canMove(currentX - 1, currentY, currentRotation)) {
-                    currentX--;
-                } else if (currentX == bestMove.x) {
-                    // Drop piece faster when in correct position
-                    if (canMove(currentX, currentY + 1, currentRotation)) {
-                        currentY++;
-                    }
-                }
-            }
-        }
-        
-        private void makePlayer2Move() {
-            if (gameOver2) return;
-            
-            // Get best position for current piece
-            AIMove bestMove = calculateBestMove(board2, PIECES[currentPiece2], currentPiece2);
-            
-            if (bestMove != null) {
-                // Rotate to target rotation
-                while (currentRotation2 != bestMove.rotation) {
-                    if (canMove2(currentX2, currentY2, (currentRotation2 + 1) % 4)) {
-                        currentRotation2 = (currentRotation2 + 1) % 4;
-                    } else {
-                        break;
-                    }
-                }
-                
-                // Move to target X position
-                if (currentX2 < bestMove.x && canMove2(currentX2 + 1, currentY2, currentRotation2)) {
-                    currentX2++;
-                } else if (currentX2 > bestMove.x && canMove2(currentX2 - 1, currentY2, currentRotation2)) {
-                    currentX2--;
-                } else if (currentX2 == bestMove.x) {
-                    // Drop piece faster when in correct position
-                    if (canMove2(currentX2, currentY2 + 1, currentRotation2)) {
-                        currentY2++;
-                    }
-                }
-            }
+        // Milliseconds per row of gravity at this player's level
+        private int gravityMillis() {
+            return TetrisEngine.fallSpeedForLevel(player == 1 ? level : level2);
         }
         
-        private AIMove calculateBestMove(int[][] gameBoard, int[][] basePiece, int pieceType) {
-            AIMove bestMove = null;
-            double bestScore = Double.NEGATIVE_INFINITY;
-            
-            // Try all rotations
-            for (int rotation = 0; rotation < 4; rotation++) {
-                // Get rotated piece
-                int[][] rotatedPiece = rotatePiece(basePiece, rotation);
-                
-                // Try all horizontal positions
-                for (int x = 0; x < BOARD_WIDTH; x++) {
-                    // Find the lowest valid Y position for this X and rotation
-                    int y = findLowestPosition(gameBoard, rotatedPiece, x);
-                    
-                    if (y >= 0) { // Valid position found
-                        // Create a copy of the board and simulate placing the piece
-                        int[][] testBoard = copyBoard(gameBoard);
-                        if (simulatePlacePiece(testBoard, rotatedPiece, x, y)) {
-                            double score = evaluateBoard(testBoard);
-                            if (score > bestScore) {
-                                bestScore = score;
-                                bestMove = new AIMove(x, rotation);
-                            }
-                        }
-                    }
-                }
+        // Search once per spawned piece, over the placements it can reach from where it is now.
+        // Returns null while the search is still running
+        private MoveSearch.Move planFor(BitBoard gameBoard, int piece, int next, int x, int y, int rotation) {
+            long key = (gameBoard.hash64() * 31 + piece) * 31 + next;
+            if (hasPlan && key == plannedFor) {
+                return plannedMove;
             }
-            
-            return bestMove;
-        }
-        
-        private int findLowestPosition(int[][] gameBoard, int[][] piece, int x) {
-            for (int y = 0; y < BOARD_HEIGHT; y++) {
-                if (!isValidPosition(gameBoard, piece, x, y)) {
-                    return y - 1; // Return the last valid position
+            if (pendingSearch == null || pendingFor != key) {
+                if (pendingSearch != null) {
+                    pendingSearch.cancel(false); // a newer piece is falling; skip it if it has not started
                 }
+                // The search reads copies, so the simulation thread keeps the board to itself
+                PathPlanner.Reachability reachable = planner.reachable(gameBoard, piece, x, y, rotation);
+                BitBoard board = gameBoard.copyMasks();
+                int[] pieces = {piece, next};
+                long deadline = System.nanoTime() + searchBudgetNanos();
+                pendingSearch = searcher.submit(() -> search.findBestMoveAnytime(board, reachable, pieces,
+                        MAX_LOOKAHEAD_BEAM, deadline));
+                pendingFor = key;
             }
-            return BOARD_HEIGHT - 1; // If piece can go all the way down
-        }
-        
-        private boolean isValidPosition(int[][] gameBoard, int[][] piece, int x, int y) {
-            for (int py = 0; py < piece.length; py++) {
-                for (int px = 0; px < piece[py].length; px++) {
-                    if (piece[py][px] == 1) {
-                        int boardX = x + px;
-                        int boardY = y + py;
-                        
-                        if (boardX < 0 || boardX >= BOARD_WIDTH || 
-                            boardY < 0 || boardY >= BOARD_HEIGHT ||
-                            gameBoard[boardY][boardX] != 0) {
-                            return false;
-                        }
-                    }
-                }
+            if (!pendingSearch.isDone()) {
+                return null;
             }
-            return true;
-        }
-        
-        private boolean simulatePlacePiece(int[][] testBoard, int[][] piece, int x, int y) {
-            // Place the piece on test board
-            for (int py = 0; py < piece.length; py++) {
-                for (int px = 0; px < piece[py].length; px++) {
-                    if (piece[py][px] == 1) {
-                        int boardX = x + px;
-                        int boardY = y + py;
-                        if (boardX >= 0 && boardX < BOARD_WIDTH && boardY >= 0 && boardY < BOARD_HEIGHT) {
-                            testBoard[boardY][boardX] = 1;
-                        }
-                    }
-                }
+            try {
+                plannedMove = pendingSearch.get();
+            } catch (ExecutionException e) {
+                System.err.println("AI search failed: " + e.getCause());
+                plannedMove = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
             }
-            return true;
+            pendingSearch = null;
+            plannedFor = key;
+            hasPlan = true;
+            return plannedMove;
         }
         
-        private int[][] copyBoard(int[][] original) {
-            int[][] copy = new int[BOARD_HEIGHT][BOARD_WIDTH];
-            for (int i = 0; i < BOARD_HEIGHT; i++) {
-                System.arraycopy(original[i], 0, copy[i], 0, BOARD_WIDTH);
-            }
-            return copy;
+        private long searchBudgetNanos() {
+            return Math.max(MIN_SEARCH_BUDGET_NANOS, gravityMillis() * 1_000_000L / 4);
         }
         
-        private double evaluateBoard(int[][] testBoard) {
-            double score = 0;
-            
-            // Calculate height of each column
-            int[] heights = new int[BOARD_WIDTH];
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                for (int y = 0; y < BOARD_HEIGHT; y++) {
-                    if (testBoard[y][x] != 0) {
-                        heights[x] = BOARD_HEIGHT - y;
-                        break;
-                    }
-                }
-            }
-            
-            // Penalize height
-            for (int height : heights) {
-                score -= height * 0.5;
-            }
-            
-            // Penalize height differences (bumpiness)
-            for (int x = 0; x < BOARD_WIDTH - 1; x++) {
-                score -= Math.abs(heights[x] - heights[x + 1]) * 0.5;
-            }
+        // One input per call along the shortest path to the planned placement
+        private void stepTowardPlan(BitBoard gameBoard, int piece, int next, int x, int y, int rotation,
+                                    boolean isPlayer2) {
+            MoveSearch.Move bestMove = planFor(gameBoard, piece, next, x, y, rotation);
+            if (bestMove == null) return;
             
-            // Count holes and penalize them
-            int holes = 0;
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                boolean foundBlock = false;
-                for (int y = 0; y < BOARD_HEIGHT; y++) {
-                    if (testBoard[y][x] != 0) {
-                        foundBlock = true;
-                    } else if (foundBlock) {
-                        holes++;
-                    }
-                }
+            // Gravity moves the piece between calls, so the path is replanned from where it is
+            TetrisEngine.Input[] path = planner.reachable(gameBoard, piece, x, y, rotation)
+                    .pathTo(bestMove.x, bestMove.y, bestMove.rotation);
+            if (path == null) {
+                hasPlan = false; // Fell past the target; pick a new one next time
+                return;
             }
-            score -= holes * 2;
-            
-            // Reward clearing lines
-            int linesCleared = countClearedLines(testBoard);
-            score += linesCleared * linesCleared * 10; // Quadratic bonus for multiple lines
-            
-            return score;
+            applyInput(path[0], isPlayer2);
         }
         
-        private int countClearedLines(int[][] testBoard) {
-            int cleared = 0;
-            for (int y = 0; y < BOARD_HEIGHT; y++) {
-                boolean fullLine = true;
-                for (int x = 0; x < BOARD_WIDTH; x++) {
-                    if (testBoard[y][x] == 0) {
-                        fullLine = false;
-                        break;
-                    }
-                }
-                if (fullLine) cleared++;
-            }
-            return cleared;
+        private void makePlayer1Move() {
+            if (gameOver) return;
+            
+            // Get best position for current piece, looking ahead to the next one
+            stepTowardPlan(bitBoard, currentPiece, nextPiece, currentX, currentY, currentRotation, false);
         }
-    }
-    
-    // AI Move class to store move information
-    private class AIMove {
-        int x, rotation;
         
-        public AIMove(int x, int rotation) {
-            this.x = x;
-            this.rotation = rotation;
+        private void makePlayer2Move() {
+            if (gameOver2) return;
+            
+            // Get best position for current piece, looking ahead to the next one
+            stepTowardPlan(bitBoard2, currentPiece2, nextPiece2, currentX2, currentY2, currentRotation2, true);
         }
     }
     
@@ -3546,8 +3695,10 @@ public class TetrisGame extends JFrame implements KeyListener {
     private void loadGameFromSlot(int slot) {
         GameData.GameSave save = GameData.loadGame(slot);
         if (save != null) {
+            simulation.stop();
+            
             // Restore game state
-            board = save.board;
+            bitBoard.loadCells(save.board);
             currentPiece = save.currentPiece;
             currentX = save.currentX;
             currentY = save.currentY;
@@ -3563,12 +3714,8 @@ public class TetrisGame extends JFrame implements KeyListener {
             showLoadGameScreen = false;
             isMultiplayerMode = false;
             
-            // Start game timer
-            if (gameTimer != null) {
-                gameTimer.stop();
-            }
-            gameTimer = new javax.swing.Timer(Math.max(50, 500 - (level - 1) * 50), e -> gameStep());
-            gameTimer.start();
+            // Start the game clock; gravity follows the loaded level
+            startSimulation();
             
             // Play background music
             if (musicEnabled && soundManager != null) {
@@ -1,23 +1,79 @@
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import com.google.gson.*;
 
 /**
  * TetrisServer client for connecting to external Tetris AI server
  * Implements the specification for connecting Tetris game to TetrisServer
+ *
+ * With binary preferred, the client offers {@link BinaryProtocol} right after
+ * connecting and falls back to JSON lines when the server declines, times
+ * out or drops the connection.
+ *
+ * Binary connections use a session: the first request syncs the whole board,
+ * later ones send only the pieces reported through {@link #notePlacement}
+ * plus a checksum, and the board is resent if the server reports a mismatch.
+ *
+ * Requests are written by the calling thread and never wait for earlier
+ * replies; a reader thread matches replies to requests by id (the binary
+ * seq, or the "id" echoed in JSON) and completes their futures. At most
+ * {@link #setMaxInFlight} requests are outstanding at once.
+ * {@link #getOptimalMoveAsync} is the game loop's entry point: requests are
+ * tagged with the piece they were made for, and once a later piece has been
+ * asked about, replies for older ones are dropped. {@link #submit} and
+ * {@link #submitBatch} pipeline independent boards without a session.
  */
 public class TetrisServer {
     private Socket socket;
-    private BufferedWriter writer;
-    private BufferedReader reader;
+    private DataInputStream in;
+    private OutputStream out;
     private Gson gson;
-    private boolean connected = false;
+    private volatile boolean connected = false;
+    private volatile boolean binary = false;
+    private volatile boolean verbose = true;
+    private int nextSeq = 0;
+    private boolean useSession = true;
+    private boolean sessionActive = false;
+    private final List<BinaryProtocol.Placement> pendingPlacements = new ArrayList<>();
+    private volatile int resyncs = 0;
+    
+    // Requests written but not yet answered, oldest first; guarded by its own monitor
+    private final Map<Integer, Pending> pending = new LinkedHashMap<>();
+    private volatile Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private final AtomicLong latestPieceSeq = new AtomicLong(Long.MIN_VALUE);
+    private volatile long requestTimeoutMs = DEFAULT_REQUEST_TIMEOUT_MS;
     
     // Server configuration
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 3000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 2000;
+    private static final int MAX_PENDING_PLACEMENTS = 8; // more than this and a full sync is smaller anyway
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final long DEFAULT_REQUEST_TIMEOUT_MS = 2000;
+    
+    private final String host;
+    private final int port;
+    private final boolean preferBinary;
     
     public TetrisServer() {
+        this(SERVER_HOST, SERVER_PORT, false);
+    }
+    
+    public TetrisServer(String host, int port, boolean preferBinary) {
+        this.host = host;
+        this.port = port;
+        this.preferBinary = preferBinary;
         this.gson = new Gson();
     }
     
@@ -26,11 +82,16 @@ public class TetrisServer {
      */
     public boolean connect() {
         try {
-            socket = new Socket(SERVER_HOST, SERVER_PORT);
-            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            open();
+            if (preferBinary && !negotiateBinary()) {
+                if (socket.isClosed()) {
+                    open(); // Server hung up on the HELLO; retry as a plain JSON client
+                }
+            }
+            socket.setSoTimeout(0); // the reader waits for replies indefinitely; requests time out on their own
             connected = true;
-            System.out.println("✅ Connected to TetrisServer at " + SERVER_HOST + ":" + SERVER_PORT);
+            startReader();
+            System.out.println("✅ Connected to TetrisServer at " + host + ":" + port + " (" + getProtocol() + ")");
             return true;
         } catch (IOException e) {
             System.err.println("❌ Failed to connect to TetrisServer: " + e.getMessage());
@@ -39,19 +100,105 @@ public class TetrisServer {
         }
     }
     
+    private synchronized void open() throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new BufferedOutputStream(socket.getOutputStream());
+        binary = false;
+        sessionActive = false;
+        pendingPlacements.clear();
+    }
+    
+    // Offer the binary protocol; false leaves the socket on JSON, or closed if the server gave up on it
+    private boolean negotiateBinary() {
+        try {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            out.write((BinaryProtocol.HELLO + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String answer = readLine(in);
+            binary = answer != null && answer.trim().equals(BinaryProtocol.OK_BINARY);
+            if (answer == null || !answer.startsWith("OK")) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already failing over to JSON
+            }
+            binary = false;
+        }
+        return binary;
+    }
+    
+    private void startReader() {
+        DataInputStream replies = in;
+        Thread reader = new Thread(() -> readReplies(replies), "tetris-server-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    /** Binary connections only: send deltas against a server-side board (default) or full boards. */
+    public synchronized void setUseSession(boolean useSession) {
+        this.useSession = useSession;
+        sessionActive = false;
+    }
+    
+    /** Cap on requests written but not yet answered (default 2). Set it before sending anything. */
+    public void setMaxInFlight(int maxInFlight) {
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+    }
+    
+    /** How long a request may wait for its reply before its future fails. */
+    public void setRequestTimeoutMillis(long timeoutMs) {
+        this.requestTimeoutMs = timeoutMs;
+    }
+    
+    /** Log every request and reply (default) or stay quiet, e.g. for load tests. */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    /**
+     * Report a locked piece so the next request can send it as a delta instead
+     * of the whole board. {@code clearedRows} are the full rows it completed,
+     * top to bottom, as indices before they were removed.
+     */
+    public synchronized void notePlacement(int piece, int rotation, int x, int y, int[] clearedRows) {
+        if (!sessionActive) return;
+        if (pendingPlacements.size() >= MAX_PENDING_PLACEMENTS) {
+            sessionActive = false; // fall back to a full sync
+            pendingPlacements.clear();
+            return;
+        }
+        pendingPlacements.add(new BinaryProtocol.Placement(piece, rotation & 3, x, y, clearedRows.clone()));
+    }
+    
+    /** Times the server asked for the whole board again since this client was created. */
+    public int getResyncCount() {
+        return resyncs;
+    }
+    
+    /** "binary" or "json", as negotiated by the last connect. */
+    public String getProtocol() {
+        return binary ? "binary" : "json";
+    }
+    
     /**
      * Disconnect from TetrisServer
      */
     public void disconnect() {
         try {
-            if (writer != null) writer.close();
-            if (reader != null) reader.close();
-            if (socket != null) socket.close();
             connected = false;
+            if (out != null) out.close();
+            if (in != null) in.close();
+            if (socket != null) socket.close();
             System.out.println("🔌 Disconnected from TetrisServer");
         } catch (IOException e) {
             System.err.println("Error disconnecting: " + e.getMessage());
         }
+        failPending(new IOException("disconnected"));
     }
     
     /**
@@ -64,43 +211,344 @@ public class TetrisServer {
         }
         
         try {
+            inFlight.acquire();
+            return send(new Pending(gameState, true)).replies.get()[0];
+        } catch (ExecutionException e) {
+            System.err.println("❌ Communication error: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Ask for a move without waiting for the reply. The game state is encoded
+     * before this returns, so the caller may keep mutating its board.
+     *
+     * The future completes with null when the request was skipped: the
+     * in-flight window was full, the client is not connected, or a later
+     * piece was asked about before this reply arrived. It fails with a
+     * {@link java.util.concurrent.TimeoutException} after the request
+     * timeout, or with the I/O error that dropped the connection.
+     *
+     * @param pieceSeq increasing number of the piece the move is for
+     */
+    public CompletableFuture<OpMove> getOptimalMoveAsync(PurGame gameState, long pieceSeq) {
+        latestPieceSeq.accumulateAndGet(pieceSeq, Math::max);
+        if (!connected || !inFlight.tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return send(new Pending(gameState, true)).replies
+                .thenApply(moves -> pieceSeq < latestPieceSeq.get() ? null : moves[0]);
+    }
+    
+    /**
+     * Pipeline one board outside the session: the request is written now and
+     * the caller only blocks while the in-flight window is full.
+     */
+    public CompletableFuture<OpMove> submit(PurGame gameState) throws InterruptedException {
+        inFlight.acquire();
+        return send(new Pending(gameState, false)).replies.thenApply(moves -> moves[0]);
+    }
+    
+    /** Many boards in one request and one reply; moves come back in the same order. */
+    public CompletableFuture<OpMove[]> submitBatch(PurGame[] gameStates) throws InterruptedException {
+        if (gameStates.length == 0) {
+            return CompletableFuture.completedFuture(new OpMove[0]);
+        }
+        inFlight.acquire();
+        return send(new Pending(gameStates)).replies;
+    }
+    
+    // Register, write and flush one request; failures complete its future rather than throw
+    private Pending send(Pending request) {
+        Semaphore window = inFlight;
+        request.replies.whenComplete((moves, error) -> {
+            synchronized (pending) {
+                pending.remove(request.seq);
+            }
+            window.release();
+        });
+        request.replies.orTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            write(request);
+        } catch (IOException | RuntimeException e) {
+            if (connected) {
+                System.err.println("❌ Communication error: " + e.getMessage());
+            }
+            dropConnection();
+            request.replies.completeExceptionally(e);
+        }
+        return request;
+    }
+    
+    private synchronized void write(Pending request) throws IOException {
+        if (!connected) {
+            throw new IOException("not connected");
+        }
+        int seq = nextSeq;
+        nextSeq += binary ? 1 : request.count; // JSON batches give every board its own id
+        request.seq = seq;
+        synchronized (pending) {
+            pending.put(seq, request);
+        }
+        
+        if (binary) {
+            out.write(encodeBinary(request));
+        } else if (request.states == null) {
             // Send game state as JSON
-            String gameJson = gson.toJson(gameState);
-            writer.write(gameJson);
-            writer.newLine();
-            writer.flush();
-            
-            System.out.println("📤 Sent game state to server");
-            
-            // Receive optimal move response
-            String response = reader.readLine();
-            if (response != null) {
-                OpMove optimalMove = gson.fromJson(response, OpMove.class);
-                System.out.println("📥 Received optimal move: x=" + optimalMove.opX + ", rotations=" + optimalMove.opRotate);
-                return optimalMove;
+            out.write((withId(request.state, seq) + "\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+            JsonArray batch = new JsonArray();
+            for (int i = 0; i < request.states.length; i++) {
+                batch.add(withId(request.states[i], seq + i));
+            }
+            out.write((batch + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+        
+        if (verbose) {
+            System.out.println("📤 Sent " + (request.count > 1 ? request.count + " game states" : "game state")
+                    + " to server (#" + seq + ")");
+        }
+    }
+    
+    private JsonObject withId(PurGame gameState, int id) {
+        JsonObject json = gson.toJsonTree(gameState).getAsJsonObject();
+        json.addProperty("id", id);
+        return json;
+    }
+    
+    private byte[] encodeBinary(Pending request) {
+        int seq = request.seq;
+        if (request.states != null) {
+            List<BinaryProtocol.MoveRequest> boards = new ArrayList<>(request.states.length);
+            for (PurGame board : request.states) {
+                boards.add(new BinaryProtocol.MoveRequest(seq, board.width, board.height, board.cells,
+                        board.currentShape, board.nextShape));
+            }
+            return BinaryProtocol.encodeBatchRequest(seq, boards);
+        }
+        PurGame gameState = request.state;
+        // Sessions track the board as a BitBoard, so wider boards always go whole
+        if (!request.session || !useSession || gameState.width > BitBoard.MAX_WIDTH) {
+            return BinaryProtocol.encodeMoveRequest(seq, gameState.width, gameState.height, gameState.cells,
+                    gameState.currentShape, gameState.nextShape);
+        }
+        
+        byte[] frame;
+        if (sessionActive) {
+            int checksum = BinaryProtocol.checksum(BitBoard.fromCells(gameState.cells, gameState.width, gameState.height));
+            frame = BinaryProtocol.encodeSessionDelta(seq, pendingPlacements, gameState.currentShape,
+                    gameState.nextShape, checksum);
+            request.state = copyOf(gameState); // kept in case the server asks for the whole board
+            request.delta = true;
+        } else {
+            frame = BinaryProtocol.encodeSessionSync(seq, gameState.width, gameState.height, gameState.cells,
+                    gameState.currentShape, gameState.nextShape);
+            request.delta = false;
+            sessionActive = true; // the server applies frames in order, so later deltas build on this sync
+        }
+        pendingPlacements.clear();
+        return frame;
+    }
+    
+    private static PurGame copyOf(PurGame gameState) {
+        int[][] cells = new int[gameState.cells.length][];
+        for (int y = 0; y < cells.length; y++) {
+            cells[y] = gameState.cells[y].clone();
+        }
+        return new PurGame(gameState.width, gameState.height, cells, gameState.currentShape, gameState.nextShape);
+    }
+    
+    // Reader thread: complete requests as their replies arrive, until the connection goes away
+    private void readReplies(DataInputStream replies) {
+        try {
+            while (true) {
+                if (binary) {
+                    int length = replies.readInt();
+                    if (length <= 0 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                        throw new IOException("unexpected reply length " + length);
+                    }
+                    byte[] payload = new byte[length];
+                    replies.readFully(payload);
+                    onBinaryReply(payload);
+                } else {
+                    String line = readLine(replies);
+                    if (line == null) {
+                        throw new EOFException("server closed the connection");
+                    }
+                    if (!line.trim().isEmpty()) {
+                        onJsonReply(line.trim());
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (replies != in) return; // an earlier connection; its requests were already failed
+            if (connected) {
+                System.err.println("❌ Communication error: " + e.getMessage());
+                dropConnection();
+            }
+            failPending(e);
+        }
+    }
+    
+    private void onBinaryReply(byte[] payload) throws IOException {
+        Pending request = take(BinaryProtocol.replySeq(payload));
+        if (request == null) return; // timed out, nobody is waiting
+        
+        if (payload[0] == BinaryProtocol.RESYNC_REPLY) {
+            if (!request.delta) {
+                request.replies.completeExceptionally(new IOException("server rejected a full sync"));
+                return;
+            }
+            System.out.println("🔄 Server board out of sync, resending the full board");
+            resyncs++;
+            try {
+                synchronized (this) {
+                    sessionActive = false;
+                    write(request); // same future under a new seq, now as a sync
+                }
+            } catch (IOException e) {
+                request.replies.completeExceptionally(e);
+                throw e;
+            }
+            return;
+        }
+        
+        int[] moves = payload[0] == BinaryProtocol.BATCH_REPLY
+                ? BinaryProtocol.decodeBatchReply(payload)
+                : dropSeq(BinaryProtocol.decodeMoveReply(payload));
+        OpMove[] result = new OpMove[moves.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new OpMove(moves[2 * i], moves[2 * i + 1]);
+        }
+        complete(request, result);
+    }
+    
+    private static int[] dropSeq(int[] reply) {
+        return new int[] {reply[1], reply[2]};
+    }
+    
+    private void onJsonReply(String line) {
+        try {
+            OpMove[] moves = line.startsWith("[")
+                    ? gson.fromJson(line, OpMove[].class)
+                    : new OpMove[] {gson.fromJson(line, OpMove.class)};
+            // Servers that do not echo ids answer in order, so the oldest request is the one
+            Integer id = moves.length > 0 && moves[0] != null ? moves[0].id : null;
+            Pending request = id != null ? take(id) : takeOldest();
+            if (request != null) {
+                complete(request, moves);
             }
-            
-        } catch (IOException e) {
-            System.err.println("❌ Communication error: " + e.getMessage());
-            connected = false;
         } catch (JsonSyntaxException e) {
             System.err.println("❌ JSON parsing error: " + e.getMessage());
+            Pending request = takeOldest();
+            if (request != null) request.replies.completeExceptionally(e);
         }
-        
-        return null;
+    }
+    
+    private void complete(Pending request, OpMove[] moves) {
+        if (moves.length != request.count) {
+            request.replies.completeExceptionally(new IOException(
+                    "expected " + request.count + " moves, got " + moves.length));
+            return;
+        }
+        if (verbose) {
+            if (moves.length == 1) {
+                System.out.println("📥 Received optimal move: x=" + moves[0].opX + ", rotations=" + moves[0].opRotate);
+            } else {
+                System.out.println("📥 Received " + moves.length + " optimal moves");
+            }
+        }
+        request.replies.complete(moves);
+    }
+    
+    private Pending take(int seq) {
+        synchronized (pending) {
+            return pending.remove(seq);
+        }
+    }
+    
+    private Pending takeOldest() {
+        synchronized (pending) {
+            Iterator<Pending> oldest = pending.values().iterator();
+            if (!oldest.hasNext()) return null;
+            Pending request = oldest.next();
+            oldest.remove();
+            return request;
+        }
+    }
+    
+    private void failPending(Throwable error) {
+        List<Pending> failed;
+        synchronized (pending) {
+            failed = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (Pending request : failed) {
+            request.replies.completeExceptionally(error);
+        }
+    }
+    
+    private void dropConnection() {
+        connected = false;
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+    }
+    
+    // UTF-8 line without the terminator, or null at end of stream
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return line.size() > 0 ? line.toString(StandardCharsets.UTF_8.name()) : null;
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8.name());
     }
     
     public boolean isConnected() {
         return connected && socket != null && socket.isConnected() && !socket.isClosed();
     }
     
+    /** One request on the wire: a single board or a batch, and the future its reply completes. */
+    private static final class Pending {
+        final int count;
+        final PurGame[] states;     // batch boards, null for a single board
+        final boolean session;      // may go out as a session sync or delta
+        final CompletableFuture<OpMove[]> replies = new CompletableFuture<>();
+        PurGame state;
+        boolean delta;
+        volatile int seq;
+        
+        Pending(PurGame state, boolean session) {
+            this.count = 1;
+            this.states = null;
+            this.state = state;
+            this.session = session;
+        }
+        
+        Pending(PurGame[] states) {
+            this.count = states.length;
+            this.states = states;
+            this.session = false;
+        }
+    }
+    
     /**
      * PurGame class representing the current game state
      * According to specification: serialized PurGame object including width, height, cells, currentShape, nextShape
      */
     public static class PurGame {
         public int width;           // Width of the Tetris board
-        public int height;          // Height of the Tetris board  
+        public int height;          // Height of the Tetris board
         public int[][] cells;       // Current state of the board (2D array)
         public int currentShape;    // The tetromino that is currently falling
         public int nextShape;       // The next tetromino to be played after the current one
@@ -121,6 +569,7 @@ public class TetrisServer {
     public static class OpMove {
         public int opX;        // The optimal X position where the current tetromino should be placed
         public int opRotate;   // The optimal number of rotations to apply to the current tetromino
+        public Integer id;     // The request it answers, when the server echoes ids
         
         public OpMove() {}
         
@@ -129,4 +578,4 @@ public class TetrisServer {
             this.opRotate = opRotate;
         }
     }
-}
\ No newline at end of file
+}
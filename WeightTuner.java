@@ -0,0 +1,324 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Headless tuner for the evaluation weights in {@link EvaluatorProfile}.
+ *
+ * Uses the noisy cross-entropy method, the diagonal-covariance cousin of
+ * CMA-ES that is the usual choice for Tetris weights: each generation
+ * samples candidates from a Gaussian per weight, plays every candidate on
+ * the same seeded games, and refits the Gaussian to the best ones. Extra
+ * variance is added early on so the search does not collapse too soon.
+ * Candidate 0 is always the current mean.
+ *
+ * Games are {@link TetrisEngine} games capped at a number of pieces and
+ * scored by lines cleared. They are spread over a fixed pool of worker
+ * threads, one game per task, and generation g plays seeds derived only
+ * from the run seed and g, so results do not depend on the thread count
+ * and a resumed run replays exactly what an uninterrupted one would have.
+ *
+ * After every generation the state is written to a checkpoint file. At the
+ * end the final mean and the best candidate seen are replayed on held-out
+ * seeds, since each generation's best was picked on that generation's
+ * games alone, and the winner is exported as a profile in
+ * {@code evaluators/<name>.json}.
+ *
+ * Usage: java -cp ".;lib/gson-2.10.1.jar" WeightTuner [options]
+ * <pre>
+ *   --generations N    generations to run in total (default 30)
+ *   --population N     candidates per generation (default 48)
+ *   --elites N         candidates the next distribution is fitted to (default 12)
+ *   --games N          games per candidate per generation (default 16)
+ *   --max-pieces N     piece cap per game (default 1000)
+ *   --lookahead        search with the next piece too (beam 8) instead of one ply
+ *   --threads N        worker threads (default: all cores)
+ *   --seed S           run seed (default 1)
+ *   --checkpoint FILE  state file (default tuner-checkpoint.json)
+ *   --resume           continue from the checkpoint file
+ *   --name NAME        exported profile name (default tuned)
+ *   --start NAME       weighted evaluator to start from (default: default)
+ * </pre>
+ */
+public class WeightTuner {
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+    private static final int LOOKAHEAD_BEAM = 8;
+    private static final int VALIDATION_FACTOR = 4;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        boolean resume = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--generations": settings.generations = Integer.parseInt(args[++i]); break;
+                case "--population": settings.population = Integer.parseInt(args[++i]); break;
+                case "--elites": settings.elites = Integer.parseInt(args[++i]); break;
+                case "--games": settings.games = Integer.parseInt(args[++i]); break;
+                case "--max-pieces": settings.maxPieces = Integer.parseInt(args[++i]); break;
+                case "--lookahead": settings.lookahead = true; break;
+                case "--threads": settings.threads = Integer.parseInt(args[++i]); break;
+                case "--seed": settings.seed = Long.parseLong(args[++i]); break;
+                case "--checkpoint": settings.checkpointFile = args[++i]; break;
+                case "--resume": resume = true; break;
+                case "--name": settings.name = args[++i]; break;
+                case "--start": settings.start = args[++i]; break;
+                default: System.err.println("Ignoring unknown option " + args[i]);
+            }
+        }
+        settings.elites = Math.max(1, Math.min(settings.elites, settings.population));
+
+        Checkpoint state;
+        if (resume) {
+            state = loadCheckpoint(new File(settings.checkpointFile), settings);
+        } else {
+            Evaluator start = Evaluators.byName(settings.start);
+            if (!(start instanceof EvaluatorProfile)) {
+                throw new IllegalArgumentException("Evaluator '" + settings.start + "' has no weights to tune");
+            }
+            state = Checkpoint.start(settings, (EvaluatorProfile) start);
+        }
+        System.out.println("🧬 Tuning " + Arrays.toString(EvaluatorProfile.FEATURES) + " from generation "
+                + state.generation + " on " + settings.threads + " threads");
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.threads);
+        try {
+            while (state.generation < settings.generations) {
+                runGeneration(settings, state, workers);
+                saveCheckpoint(state, new File(settings.checkpointFile));
+            }
+
+            // Held-out seeds sit below every generation's range
+            double[][] finalists = {state.mean.clone(), state.best.clone()};
+            int validationGames = settings.games * VALIDATION_FACTOR;
+            double[] fitness = play(finalists, settings.seed * 1_000_003L - validationGames, validationGames,
+                    settings, state, workers);
+            int winner = fitness[0] >= fitness[1] ? 0 : 1;
+            System.out.printf("✅ Validation over %d games: mean %.1f, best-seen %.1f lines per game%n",
+                    validationGames, fitness[0], fitness[1]);
+
+            double gamesPerSecond = state.gamesPlayed / Math.max(1e-9, state.elapsedSeconds);
+            System.out.printf("🏁 %d games in %.1f s: %.1f games/s, %.1f games/s per core%n",
+                    state.gamesPlayed, state.elapsedSeconds, gamesPerSecond, gamesPerSecond / settings.threads);
+
+            EvaluatorProfile profile = new EvaluatorProfile(settings.name, finalists[winner]);
+            File profileFile = EvaluatorProfile.fileFor(settings.name);
+            Map<String, Number> extra = new LinkedHashMap<>();
+            extra.put("validationLines", fitness[winner]);
+            extra.put("validationGames", validationGames);
+            extra.put("maxPieces", settings.maxPieces);
+            extra.put("generations", state.generation);
+            profile.save(profileFile, extra);
+            System.out.println("📝 " + profile + " written to " + profileFile);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void runGeneration(Settings settings, Checkpoint state, ExecutorService workers)
+            throws InterruptedException, ExecutionException {
+        int generation = state.generation;
+        int dims = state.mean.length;
+        Random random = new Random(settings.seed * 1_000_003L + generation);
+
+        double[][] candidates = new double[settings.population][];
+        candidates[0] = state.mean.clone();
+        for (int c = 1; c < candidates.length; c++) {
+            candidates[c] = new double[dims];
+            for (int i = 0; i < dims; i++) {
+                candidates[c][i] = state.mean[i] + state.sigma[i] * random.nextGaussian();
+            }
+        }
+        long firstSeed = settings.seed * 1_000_003L + (long) generation * settings.games;
+        long start = System.nanoTime();
+        double[] fitness = play(candidates, firstSeed, settings.games, settings, state, workers);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Integer[] order = new Integer[settings.population];
+        for (int c = 0; c < settings.population; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+
+        // Refit the distribution to the elites, plus decaying extra variance
+        double noise = settings.noise * Math.max(0, 1 - (double) generation / settings.noiseGenerations);
+        for (int i = 0; i < dims; i++) {
+            double mean = 0;
+            for (int e = 0; e < settings.elites; e++) {
+                mean += candidates[order[e]][i];
+            }
+            mean /= settings.elites;
+            double variance = 0;
+            for (int e = 0; e < settings.elites; e++) {
+                double d = candidates[order[e]][i] - mean;
+                variance += d * d;
+            }
+            variance /= settings.elites;
+            state.mean[i] = mean;
+            state.sigma[i] = Math.sqrt(variance + noise * noise * state.initialSigma[i] * state.initialSigma[i]);
+        }
+
+        int top = order[0];
+        if (fitness[top] > state.bestFitness) {
+            state.bestFitness = fitness[top];
+            state.best = candidates[top].clone();
+            state.bestGeneration = generation;
+        }
+        int games = settings.population * settings.games;
+        state.generation++;
+
+        System.out.printf("gen %3d  best %7.1f  mean-candidate %7.1f  %5d games %6.1f s  %7.1f games/s  %6.1f /s per core  %s%n",
+                generation, fitness[top], fitness[0], games, seconds, games / seconds,
+                games / seconds / settings.threads, format(candidates[top]));
+    }
+
+    /**
+     * Mean lines cleared per game for each candidate over seeds
+     * {@code firstSeed .. firstSeed + games - 1}. Every (candidate, game)
+     * pair is one task; the workers pull the next index until none are left.
+     */
+    private static double[] play(double[][] candidates, long firstSeed, int games, Settings settings,
+                                 Checkpoint state, ExecutorService workers)
+            throws InterruptedException, ExecutionException {
+        int[] lines = new int[candidates.length * games];
+        AtomicInteger nextTask = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int t = 0; t < settings.threads; t++) {
+            jobs.add(() -> {
+                for (int task; (task = nextTask.getAndIncrement()) < lines.length; ) {
+                    EvaluatorProfile profile = new EvaluatorProfile("candidate", candidates[task / games]);
+                    lines[task] = playGame(profile, firstSeed + task % games, settings);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> job : workers.invokeAll(jobs)) {
+            job.get();
+        }
+        state.gamesPlayed += lines.length;
+        state.elapsedSeconds += (System.nanoTime() - start) / 1e9;
+
+        double[] fitness = new double[candidates.length];
+        for (int c = 0; c < candidates.length; c++) {
+            long total = 0;
+            for (int g = 0; g < games; g++) {
+                total += lines[c * games + g];
+            }
+            fitness[c] = (double) total / games;
+        }
+        return fitness;
+    }
+
+    /** Lines cleared by one capped game with the given weights. */
+    static int playGame(EvaluatorProfile profile, long seed, Settings settings) {
+        TetrisEngine engine = new TetrisEngine(BOARD_WIDTH, BOARD_HEIGHT, 1, seed);
+        MoveSearch search = new MoveSearch(false, null, null, profile);
+        while (!engine.isGameOver() && engine.getPiecesPlaced() < settings.maxPieces) {
+            MoveSearch.Move move = settings.lookahead
+                    ? search.findBestMove(engine.getBoard(), engine.getCurrentPiece(), engine.getNextPiece(),
+                            LOOKAHEAD_BEAM, Long.MAX_VALUE)
+                    : search.findBestMove(engine.getBoard(), engine.getCurrentPiece());
+            if (move == null || !engine.dropAt(move.x, move.rotation)) break;
+        }
+        return engine.getLinesCleared();
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < weights.length; i++) {
+            if (i > 0) text.append(", ");
+            text.append(String.format("%.3f", weights[i]));
+        }
+        return text.append(']').toString();
+    }
+
+    private static void saveCheckpoint(Checkpoint state, File file) throws IOException {
+        // Write beside the target and rename, so an interrupted save keeps the previous checkpoint
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (Writer writer = new FileWriter(temp)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(state, writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Checkpoint loadCheckpoint(File file, Settings settings) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            Checkpoint state = new Gson().fromJson(reader, Checkpoint.class);
+            if (state == null || state.mean == null || state.mean.length != EvaluatorProfile.FEATURES.length) {
+                throw new IOException("Checkpoint " + file + " does not match the current features");
+            }
+            // Seeds come from the run seed, so a resumed run keeps the original one
+            if (state.seed != settings.seed) {
+                System.out.println("Resuming with the checkpoint's seed " + state.seed);
+                settings.seed = state.seed;
+            }
+            System.out.println("📂 Resumed " + file + " at generation " + state.generation
+                    + ", best so far " + String.format("%.1f", state.bestFitness));
+            return state;
+        }
+    }
+
+    static final class Settings {
+        int generations = 30;
+        int population = 48;
+        int elites = 12;
+        int games = 16;
+        int maxPieces = 1000;
+        boolean lookahead = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        double noise = 0.25; // extra spread at generation 0, as a fraction of the initial spread
+        int noiseGenerations = 20; // fixed fade-out, so extending a run does not change its history
+        String checkpointFile = "tuner-checkpoint.json";
+        String name = "tuned";
+        String start = Evaluators.DEFAULT_NAME;
+    }
+
+    /** Everything needed to continue a run, as written to the checkpoint file. */
+    static final class Checkpoint {
+        int generation;
+        long seed;
+        double[] mean;
+        double[] sigma;
+        double[] initialSigma;
+        double[] best;
+        double bestFitness = -1;
+        int bestGeneration = -1;
+        long gamesPlayed;
+        double elapsedSeconds;
+
+        // Start around the given weights, spread by their own magnitude
+        static Checkpoint start(Settings settings, EvaluatorProfile profile) {
+            Checkpoint state = new Checkpoint();
+            state.seed = settings.seed;
+            state.mean = profile.weights();
+            state.best = state.mean.clone();
+            state.initialSigma = new double[state.mean.length];
+            for (int i = 0; i < state.mean.length; i++) {
+                state.initialSigma[i] = Math.max(0.5, Math.abs(state.mean[i]));
+            }
+            state.sigma = state.initialSigma.clone();
+            return state;
+        }
+    }
+}